@@ -3,31 +3,121 @@ set -e
 
 APP_DIR="$(pwd -P)"  # Remember app dir to copy artifacts back
 
+# Per-job directories are passed in by AnalysisRunner; the fallbacks keep
+# the script usable on its own.
+ARTIFACTS_DIR="${ARTIFACTS_DIR:-$APP_DIR/artifacts}"
+# A caller-provided checkout is left in place for in-process analysis; the
+# caller deletes it.
+if [ -n "$CHECKOUT_DIR" ]; then
+    TEMP_DIR="$CHECKOUT_DIR"
+    OWNS_CHECKOUT=false
+else
+    TEMP_DIR="$(mktemp -d)"
+    OWNS_CHECKOUT=true
+fi
+
 echo "Starting analysis for repository: $REPO"
 echo "Head SHA: $HEAD_SHA"
 echo "App directory: $APP_DIR"
+echo "Artifacts directory: $ARTIFACTS_DIR"
 
-# Create a temporary directory for the repo
-TEMP_DIR=$(mktemp -d)
-echo "Created temporary directory: $TEMP_DIR"
+# Create the checkout directory for the repo
+mkdir -p "$TEMP_DIR" "$ARTIFACTS_DIR"
+
+# Each stage's wall-clock time goes to stage-timings.txt as "<stage> <millis>"
+# for the service's metrics. The last stage is closed on exit, even a failing one.
+STAGE_TIMINGS="$ARTIFACTS_DIR/stage-timings.txt"
+: > "$STAGE_TIMINGS"
+STAGE_NAME=""
+STAGE_START=0
+now_micros() {
+  if [ -n "$EPOCHREALTIME" ]; then
+    echo "${EPOCHREALTIME/./}"
+  else
+    echo $(( $(date +%s) * 1000000 ))
+  fi
+}
+stage() {
+  local now
+  now=$(now_micros)
+  if [ -n "$STAGE_NAME" ]; then
+    echo "$STAGE_NAME $(( (now - STAGE_START) / 1000 ))" >> "$STAGE_TIMINGS"
+  fi
+  STAGE_NAME="$1"
+  STAGE_START=$now
+  if [ -n "$1" ]; then
+    echo "==> stage: $1"
+  fi
+}
+trap 'stage ""' EXIT
+stage checkout
+echo "Using checkout directory: $TEMP_DIR"
 cd "$TEMP_DIR"
 
-# Clone the repository with authentication
-echo "Cloning repository..."
 if [ -n "$GITHUB_TOKEN" ]; then
     echo "Using GitHub token for authentication"
-    git clone https://$GITHUB_TOKEN@github.com/$REPO repo
+    REMOTE_URL="https://$GITHUB_TOKEN@github.com/$REPO"
 else
     echo "No GitHub token provided, using public access"
-    git clone https://github.com/$REPO repo
+    REMOTE_URL="https://github.com/$REPO"
 fi
 
-cd repo
-echo "Fetching all branches and commits..."
-git fetch --all
+has_commits() {
+  git --git-dir="$MIRROR_DIR" cat-file -e "$HEAD_SHA^{commit}" 2>/dev/null \
+    && git --git-dir="$MIRROR_DIR" cat-file -e "$BASE_SHA^{commit}" 2>/dev/null
+}
+
+if [ -n "$MIRROR_DIR" ]; then
+    # Reuse the persistent bare mirror; only one job at a time may fetch into it
+    # or register a worktree.
+    echo "Using repository mirror: $MIRROR_DIR"
+    mkdir -p "$MIRROR_DIR"
+    exec 9>"$MIRROR_DIR/.analysis.lock"
+    if command -v flock >/dev/null 2>&1; then
+        flock 9
+    fi
+
+    if [ ! -f "$MIRROR_DIR/HEAD" ]; then
+        echo "Initializing mirror..."
+        git init --bare -q "$MIRROR_DIR"
+    fi
+
+    if has_commits; then
+        echo "Mirror already contains $HEAD_SHA, skipping fetch"
+    else
+        echo "Fetching new commits into mirror..."
+        # The token is passed on the command line only, never stored in the mirror config
+        PR_REFSPEC=""
+        if [ -n "$PR_NUMBER" ]; then
+            PR_REFSPEC="+refs/pull/$PR_NUMBER/head:refs/pull/$PR_NUMBER/head"
+        fi
+        git --git-dir="$MIRROR_DIR" fetch --prune --no-tags "$REMOTE_URL" \
+            '+refs/heads/*:refs/heads/*' $PR_REFSPEC
+    fi
+
+    echo "Checking out commit: $HEAD_SHA"
+    git --git-dir="$MIRROR_DIR" worktree prune
+    git --git-dir="$MIRROR_DIR" worktree add --detach "$TEMP_DIR/repo" "$HEAD_SHA"
+
+    if command -v flock >/dev/null 2>&1; then
+        flock -u 9
+    fi
+    exec 9>&-
+    cd repo
+else
+    # Clone the repository with authentication
+    echo "Cloning repository..."
+    git clone "$REMOTE_URL" repo
+
+    cd repo
+    echo "Fetching all branches and commits..."
+    git fetch --all
 
-echo "Checking out commit: $HEAD_SHA"
-git checkout $HEAD_SHA
+    echo "Checking out commit: $HEAD_SHA"
+    git checkout $HEAD_SHA
+fi
+
+stage setup
 
 # Prefer the project's Maven Wrapper if available
 MVN_CMD="./mvnw"
@@ -37,6 +127,29 @@ else
   MVN_CMD="mvn"
 fi
 
+# Named file locks need Maven 3.9 or later; older versions ignore the settings
+maven_supports_named_locks() {
+  local major minor
+  read -r major minor < <($MVN_CMD -v 2>/dev/null \
+    | sed -n 's/^Apache Maven \([0-9][0-9]*\)\.\([0-9][0-9]*\).*/\1 \2/p' | head -n 1)
+  [ -n "$major" ] && { [ "$major" -gt 3 ] || { [ "$major" -eq 3 ] && [ "$minor" -ge 9 ]; }; }
+}
+
+# Build against the shared local repository when one is provided. Named file
+# locks let several builds resolve into it at the same time; without them the
+# build gets a repository of its own inside the job's checkout.
+if [ -n "$MAVEN_REPO_LOCAL" ] && ! maven_supports_named_locks; then
+  echo "Maven older than 3.9 cannot lock the shared repository; using a per-job repository"
+  MAVEN_REPO_LOCAL=""
+  MVN_CMD="$MVN_CMD -Dmaven.repo.local=$TEMP_DIR/.m2-repository"
+fi
+if [ -n "$MAVEN_REPO_LOCAL" ]; then
+  echo "Using shared Maven repository: $MAVEN_REPO_LOCAL"
+  MAVEN_CACHE_MARKER="$ARTIFACTS_DIR/.maven-cache-marker"
+  touch "$MAVEN_CACHE_MARKER"
+  MVN_CMD="$MVN_CMD -Dmaven.repo.local=$MAVEN_REPO_LOCAL -Daether.syncContext.named.factory=file-lock -Daether.syncContext.named.nameMapper=file-gav"
+fi
+
 detect_java_version() {
   local ver raw
   # Try evaluating common Maven properties
@@ -106,13 +219,36 @@ fi
 echo "java -version:"
 java -version
 
+stage diff
+
 # Get the list of changed files (Java files only)
 echo "Getting list of changed files..."
 echo "Base SHA: $BASE_SHA"
-CHANGED_FILES=$(git diff --name-only $BASE_SHA HEAD | grep '\.java$' || true)
+# Diff from the merge base, like GitHub's PR diff, so commits that landed on the
+# base branch after the PR branched off don't count as changed by the PR
+MERGE_BASE=$(git merge-base "$BASE_SHA" HEAD 2>/dev/null || echo "$BASE_SHA")
+echo "Merge base: $MERGE_BASE"
+PR_FILES=$(git diff --name-only $MERGE_BASE HEAD | grep '\.java$' || true)
+CHANGED_FILES="$PR_FILES"
+ANALYSIS_SCOPE=full
+
+# When the previous review's head is an ancestor of this one (no force push),
+# only the PR files changed since then need analyzing; the service reuses the
+# earlier findings for the rest.
+if [ -n "$PREV_HEAD_SHA" ] && git cat-file -e "$PREV_HEAD_SHA^{commit}" 2>/dev/null \
+    && git merge-base --is-ancestor "$PREV_HEAD_SHA" HEAD 2>/dev/null; then
+    echo "Previous review at $PREV_HEAD_SHA, analyzing files changed since then"
+    DELTA_FILES=$(git diff --name-only $PREV_HEAD_SHA HEAD | grep '\.java$' || true)
+    CHANGED_FILES=$(comm -12 <(echo "$PR_FILES" | sort) <(echo "$DELTA_FILES" | sort) | grep -v '^$' || true)
+    ANALYSIS_SCOPE=incremental
+elif [ -n "$PREV_HEAD_SHA" ]; then
+    echo "Previous head $PREV_HEAD_SHA is not an ancestor of $HEAD_SHA, analyzing the whole PR"
+fi
+echo "$ANALYSIS_SCOPE" > "$ARTIFACTS_DIR/analysis-scope"
+echo "$PR_FILES" > "$ARTIFACTS_DIR/pr-files.txt"
 
 if [ -z "$CHANGED_FILES" ]; then
-    echo "No Java files changed in this PR"
+    echo "No Java files to analyze (scope: $ANALYSIS_SCOPE)"
     # Create empty result files
     mkdir -p target
     echo '<?xml version="1.0" encoding="UTF-8"?><checkstyle version="8.45.1"><file name="no-files-changed"></file></checkstyle>' > target/checkstyle-result.xml
@@ -121,43 +257,88 @@ else
     echo "Changed Java files:"
     echo "$CHANGED_FILES"
     
+    # Scope the tools to the changed files. Checkstyle takes include patterns
+    # relative to the source roots (falling back to the file name for
+    # non-standard layouts).
+    CHECKSTYLE_INCLUDES=$(echo "$CHANGED_FILES" \
+        | sed -E 's#^(.*/)?src/(main|test)/java/##; t; s#^(.*/)?([^/]+)$#**/\2#' \
+        | paste -sd, -)
+
+    # SpotBugs is limited to the packages of changed main classes, which keeps
+    # inner and anonymous classes of the changed files in scope. Only test
+    # files changed: nothing to analyze. Non-standard layout or the default
+    # package: analyze everything as before.
+    RUN_SPOTBUGS=true
+    SPOTBUGS_ARGS=""
+    if ! echo "$CHANGED_FILES" | grep -qvE '(^|/)src/(main|test)/java/'; then
+        MAIN_SOURCES=$(echo "$CHANGED_FILES" | grep -E '(^|/)src/main/java/' | sed -E 's#^(.*/)?src/main/java/##' || true)
+        if [ -z "$MAIN_SOURCES" ]; then
+            RUN_SPOTBUGS=false
+        elif ! echo "$MAIN_SOURCES" | grep -qv '/'; then
+            SPOTBUGS_PACKAGES=$(echo "$MAIN_SOURCES" | sed -E 's#/[^/]+$##; s#/#.#g; s#$#.*#' | sort -u | paste -sd, -)
+            SPOTBUGS_ARGS="-Dspotbugs.onlyAnalyze=$SPOTBUGS_PACKAGES"
+        fi
+    fi
+
     # Compile the project (needed for SpotBugs)
+    stage compile
     $MVN_CMD -B compile -DskipTests -q
     
-    # Run Checkstyle with an explicit plugin version supporting newer JDKs
-    echo "Running Checkstyle..."
-    $MVN_CMD -B org.apache.maven.plugins:maven-checkstyle-plugin:3.6.0:checkstyle -DskipTests -q
-    
-    echo "Checkstyle completed. Changed files for reference: $CHANGED_FILES"
+    if [ "$CHECKSTYLE_MODE" = "in-process" ]; then
+        echo "Skipping Checkstyle plugin; the service checks changed files in-process"
+    else
+        # Run Checkstyle with an explicit plugin version supporting newer JDKs
+        stage checkstyle
+        echo "Running Checkstyle on: $CHECKSTYLE_INCLUDES"
+        $MVN_CMD -B org.apache.maven.plugins:maven-checkstyle-plugin:3.6.0:checkstyle -DskipTests -q \
+            "-Dcheckstyle.includes=$CHECKSTYLE_INCLUDES"
+
+        echo "Checkstyle completed. Changed files for reference: $CHANGED_FILES"
+    fi
     
-    # Save the list of changed files for the Java parser to use
-    mkdir -p "$APP_DIR/artifacts"
-    echo "$CHANGED_FILES" > "$APP_DIR/artifacts/changed-files.txt"
+    # Save the list of changed files and the changed line ranges for the Java side to use
+    echo "$CHANGED_FILES" > "$ARTIFACTS_DIR/changed-files.txt"
+    git diff --unified=0 --no-color --no-ext-diff $MERGE_BASE HEAD -- '*.java' > "$ARTIFACTS_DIR/changes.diff"
     
     # Run SpotBugs with a recent plugin version
-    echo "Running SpotBugs..."
-    $MVN_CMD -B com.github.spotbugs:spotbugs-maven-plugin:4.8.5.0:spotbugs -DskipTests -q
+    if [ "$RUN_SPOTBUGS" = true ]; then
+        stage spotbugs
+        echo "Running SpotBugs... ${SPOTBUGS_ARGS:-(whole project)}"
+        $MVN_CMD -B com.github.spotbugs:spotbugs-maven-plugin:4.8.5.0:spotbugs -DskipTests -q $SPOTBUGS_ARGS
+    else
+        echo "Skipping SpotBugs; no main sources changed"
+    fi
+fi
+
+# Report how much the build had to download into the shared repository
+if [ -n "$MAVEN_REPO_LOCAL" ]; then
+    find "$MAVEN_REPO_LOCAL" -type f \( -name '*.jar' -o -name '*.pom' \) -newer "$MAVEN_CACHE_MARKER" -printf '%s\n' \
+        | awk '{ n++; bytes += $1 } END { printf "%d %d\n", n, bytes }' > "$ARTIFACTS_DIR/maven-downloads.txt" || true
 fi
 
-# Copy results back to the application directory
+# Copy results back to the job's artifacts directory
 echo "Copying results to artifacts directory..."
-mkdir -p "$APP_DIR/artifacts"
 if [ -f target/checkstyle-result.xml ]; then
-    cp target/checkstyle-result.xml "$APP_DIR/artifacts/"
+    cp target/checkstyle-result.xml "$ARTIFACTS_DIR/"
     echo "Checkstyle results copied"
 else
     echo "No checkstyle results found"
 fi
 
 if [ -f target/spotbugsXml.xml ]; then
-    cp target/spotbugsXml.xml "$APP_DIR/artifacts/"
+    cp target/spotbugsXml.xml "$ARTIFACTS_DIR/"
     echo "SpotBugs results copied"
 else
     echo "No SpotBugs results found"
 fi
 
 # Clean up
-echo "Cleaning up temporary directory..."
 cd "$APP_DIR"
-rm -rf "$TEMP_DIR"
+if [ "$OWNS_CHECKOUT" = true ]; then
+    echo "Cleaning up checkout directory..."
+    rm -rf "$TEMP_DIR"
+    if [ -n "$MIRROR_DIR" ]; then
+        git --git-dir="$MIRROR_DIR" worktree prune || true
+    fi
+fi
 echo "Analysis completed successfully"
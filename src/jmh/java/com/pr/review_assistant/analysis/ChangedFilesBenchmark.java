@@ -0,0 +1,86 @@
+package com.pr.review_assistant.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves every file of a large Checkstyle report against the PR's changed files, with
+ * the segment index and with the linear suffix scan it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangedFilesBenchmark {
+
+    @Param("10000")
+    int reportFiles;
+
+    @Param("500")
+    int changedCount;
+
+    private String[] reportPaths;
+    private Set<String> changedPaths;
+    private ChangedFiles changedFiles;
+
+    @Setup
+    public void setUp() {
+        reportPaths = new String[reportFiles];
+        changedPaths = new LinkedHashSet<>();
+        int stride = Math.max(1, reportFiles / changedCount);
+        for (int i = 0; i < reportFiles; i++) {
+            String relative = "module-" + (i % 7) + "/src/main/java/com/example/pkg" + (i % 97) + "/Type" + i + ".java";
+            reportPaths[i] = "/app/workspaces/repo-pr42-abcdef0-123/checkout/repo/" + relative;
+            if (i % stride == 0 && changedPaths.size() < changedCount) {
+                changedPaths.add(relative);
+            }
+        }
+        changedFiles = new ChangedFiles(changedPaths);
+    }
+
+    @Benchmark
+    public void index(Blackhole blackhole) {
+        for (String path : reportPaths) {
+            blackhole.consume(changedFiles.match(path));
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (String path : reportPaths) {
+            blackhole.consume(linearMatch(path));
+        }
+    }
+
+    /** The matching {@link ChangedFiles} did before it was indexed. */
+    private String linearMatch(String reportPath) {
+        String normalized = reportPath.replace('\\', '/');
+        int idx = normalized.lastIndexOf("/repo/");
+        if (idx >= 0) {
+            normalized = normalized.substring(idx + "/repo/".length());
+        }
+        normalized = normalized.replaceAll("/+", "/");
+        for (String changed : changedPaths) {
+            if (normalized.endsWith(changed) || changed.endsWith(normalized)) {
+                return changed;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.pr.review_assistant.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams generated Checkstyle reports through {@link CheckstyleResultParser}, keeping
+ * only the PR's files as production does, and keeping every file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckstyleResultParserBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int errors;
+
+    private final CheckstyleResultParser parser = new CheckstyleResultParser();
+    private Path dir;
+    private Path report;
+    private ChangedFiles changedFiles;
+    private final ChangedFiles allFiles = new ChangedFiles(Set.of());
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("checkstyle-benchmark");
+        report = SyntheticReports.writeCheckstyleReport(dir, errors);
+        changedFiles = SyntheticReports.changedFiles(errors);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(report);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int changedFiles(Blackhole blackhole) {
+        return parser.parseCheckstyleResults(report, changedFiles, blackhole::consume);
+    }
+
+    @Benchmark
+    public int allFiles(Blackhole blackhole) {
+        return parser.parseCheckstyleResults(report, allFiles, blackhole::consume);
+    }
+}
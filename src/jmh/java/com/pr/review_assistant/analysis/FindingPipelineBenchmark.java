@@ -0,0 +1,57 @@
+package com.pr.review_assistant.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-JVM stages after parsing: {@link RuleExplainer#enhanceFinding} over every
+ * finding, and {@link FindingFormatter#formatFindings} building the summary comment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindingPipelineBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int findings;
+
+    private final RuleExplainer explainer = new RuleExplainer();
+    private final FindingFormatter formatter = new FindingFormatter();
+    private List<Finding> parsed;
+    private List<Finding> enhanced;
+
+    @Setup
+    public void setUp() {
+        parsed = SyntheticReports.findings(findings);
+        enhanced = SyntheticReports.findings(findings);
+        enhanced.forEach(explainer::enhanceFinding);
+    }
+
+    @Benchmark
+    public void explain(Blackhole blackhole) {
+        for (Finding finding : parsed) {
+            blackhole.consume(explainer.enhanceFinding(finding));
+        }
+    }
+
+    @Benchmark
+    public String format() {
+        return formatter.formatFindings(enhanced);
+    }
+}
@@ -0,0 +1,102 @@
+package com.pr.review_assistant.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checkstyle reports and findings shaped like the ones real PRs produce: a few dozen
+ * errors per file, mostly warnings, spread over a multi-module layout, with a small
+ * fraction of the files changed by the PR.
+ */
+public final class SyntheticReports {
+
+    public static final int ERRORS_PER_FILE = 25;
+    /** One file in this many is part of the PR. */
+    public static final int CHANGED_EVERY = 20;
+
+    private static final String CHECKOUT = "/app/workspaces/repo-pr42-abcdef0-123/checkout/repo/";
+    private static final String CHECKS = "com.puppycrawl.tools.checkstyle.checks.";
+    private static final String[][] RULES = {
+            {"coding.MagicNumberCheck", "'42' is a magic number."},
+            {"sizes.LineLengthCheck", "Line is longer than 120 characters (found 134)."},
+            {"imports.UnusedImportsCheck", "Unused import - java.util.Map."},
+            {"misc.FinalParametersCheck", "Parameter request should be final."},
+            {"blocks.NeedBracesCheck", "'if' construct must use '{}'s."},
+            {"coding.HiddenFieldCheck", "'name' hides a field."},
+            {"javadoc.JavadocMethodCheck", "Expected @param tag for 'id'."},
+            {"whitespace.WhitespaceAroundCheck", "'=' is not preceded with whitespace."},
+    };
+    private static final String[] SEVERITIES = {"warning", "warning", "warning", "error", "info"};
+
+    private SyntheticReports() {
+    }
+
+    public static String relativePath(int file) {
+        return "module-" + (file % 7) + "/src/main/java/com/example/pkg" + (file % 97) + "/Type" + file + ".java";
+    }
+
+    /** Writes a report with {@code errors} errors, {@link #ERRORS_PER_FILE} per file. */
+    public static Path writeCheckstyleReport(Path dir, int errors) throws IOException {
+        Path report = dir.resolve("checkstyle-result.xml");
+        try (BufferedWriter out = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<checkstyle version=\"10.26.1\">\n");
+            for (int i = 0; i < errors; i++) {
+                int file = i / ERRORS_PER_FILE;
+                if (i % ERRORS_PER_FILE == 0) {
+                    if (i > 0) {
+                        out.write("</file>\n");
+                    }
+                    out.write("<file name=\"" + CHECKOUT + relativePath(file) + "\">\n");
+                }
+                String[] rule = RULES[i % RULES.length];
+                out.write("<error line=\"" + (10 + i % 400) + "\" column=\"" + (1 + i % 80)
+                        + "\" severity=\"" + SEVERITIES[i % SEVERITIES.length]
+                        + "\" message=\"" + rule[1].replace("'", "&apos;")
+                        + "\" source=\"" + CHECKS + rule[0] + "\"/>\n");
+            }
+            if (errors > 0) {
+                out.write("</file>\n");
+            }
+            out.write("</checkstyle>\n");
+        }
+        return report;
+    }
+
+    /** The files of a report with {@code errors} errors that the PR changed. */
+    public static ChangedFiles changedFiles(int errors) {
+        int files = (errors + ERRORS_PER_FILE - 1) / ERRORS_PER_FILE;
+        Set<String> changed = new LinkedHashSet<>();
+        for (int file = 0; file < files; file += CHANGED_EVERY) {
+            changed.add(relativePath(file));
+        }
+        return new ChangedFiles(changed);
+    }
+
+    /** Findings as the parser emits them, before {@link RuleExplainer} has seen them. */
+    public static List<Finding> findings(int count) {
+        List<Finding> findings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int file = i / ERRORS_PER_FILE;
+            String[] rule = RULES[i % RULES.length];
+            String source = CHECKS + rule[0];
+            findings.add(Finding.builder()
+                    .file("Type" + file + ".java")
+                    .relativePath(relativePath(file))
+                    .line(10 + i % 400)
+                    .column(1 + i % 80)
+                    .severity(SEVERITIES[i % SEVERITIES.length])
+                    .rule(source.substring(source.lastIndexOf('.') + 1))
+                    .message(rule[1])
+                    .source(source)
+                    .build());
+        }
+        return findings;
+    }
+}
@@ -0,0 +1,53 @@
+package com.pr.review_assistant.publisher;
+
+import com.pr.review_assistant.analysis.Finding;
+import com.pr.review_assistant.analysis.RuleExplainer;
+import com.pr.review_assistant.analysis.SyntheticReports;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the inline comment body for every enhanced finding, the last in-JVM step
+ * before the review is posted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InlineCommentBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int findings;
+
+    private final Publisher publisher = new Publisher(null, 1);
+    private List<Finding> enhanced;
+
+    @Setup
+    public void setUp() {
+        RuleExplainer explainer = new RuleExplainer();
+        enhanced = SyntheticReports.findings(findings);
+        enhanced.forEach(explainer::enhanceFinding);
+    }
+
+    @Benchmark
+    public void buildInlineBody(Blackhole blackhole) {
+        for (Finding finding : enhanced) {
+            blackhole.consume(publisher.buildInlineBody(finding));
+        }
+    }
+}
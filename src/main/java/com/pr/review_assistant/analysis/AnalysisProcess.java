@@ -0,0 +1,203 @@
+package com.pr.review_assistant.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A running analysis script with bounded output capture and wall-clock budgets. Output is
+ * pumped on a separate thread into an {@link OutputTail}, so only the last part is kept
+ * however much the build prints. The {@code ==> stage: <name>} lines the script prints
+ * start a new stage; when the current stage or the whole run exceeds its budget the
+ * script and every process it spawned are killed.
+ */
+@Slf4j
+class AnalysisProcess {
+
+    static final String STAGE_MARKER = "==> stage: ";
+    /** Only this much of a line is kept for stage detection; the tail still gets all of it. */
+    private static final int MAX_LINE_CHARS = 1024;
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Process process;
+    private final OutputTail output;
+    private final Thread pump;
+    private final long startedAt = System.nanoTime();
+    private volatile String stage = "start";
+    private volatile long stageStartedAt = startedAt;
+    private String timedOutStage;
+
+    AnalysisProcess(Process process, int tailChars, String name) {
+        this.process = process;
+        this.output = new OutputTail(tailChars);
+        this.pump = new Thread(this::pumpOutput, name + "-output");
+        this.pump.setDaemon(true);
+        this.pump.start();
+    }
+
+    /**
+     * Waits for the script to exit, killing its process tree when a budget runs out.
+     *
+     * @param total  budget for the whole run
+     * @param stages budgets by stage name; stages without one are only bound by {@code total}
+     * @param grace  how long killed processes get to exit before they are killed forcibly
+     * @return the exit code, or -1 if the script was killed for exceeding a budget
+     */
+    int await(Duration total, Map<String, Duration> stages, Duration grace) throws InterruptedException {
+        long totalDeadline = startedAt + total.toNanos();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                String current = stage;
+                Duration stageBudget = stages.get(current);
+                long deadline = totalDeadline;
+                String exceeded = "total";
+                if (stageBudget != null && stageStartedAt + stageBudget.toNanos() < deadline) {
+                    deadline = stageStartedAt + stageBudget.toNanos();
+                    exceeded = current;
+                }
+                if (now >= deadline) {
+                    timedOutStage = exceeded;
+                    destroyTree(process, grace);
+                    drain(grace);
+                    return -1;
+                }
+                // Wake up at least twice a second to notice stage changes
+                if (process.waitFor(Math.min(deadline - now, MAX_POLL_NANOS), TimeUnit.NANOSECONDS)) {
+                    drain(grace);
+                    return process.exitValue();
+                }
+            }
+        } catch (InterruptedException e) {
+            // The worker is shutting down; don't leave the build running behind it
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses {@code stage=duration} pairs separated by commas, e.g.
+     * {@code compile=PT15M,spotbugs=PT10M}.
+     */
+    static Map<String, Duration> parseBudgets(String spec) {
+        Map<String, Duration> budgets = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return budgets;
+        }
+        for (String entry : spec.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Invalid stage budget: " + entry.trim());
+            }
+            budgets.put(entry.substring(0, equals).trim(), Duration.parse(entry.substring(equals + 1).trim()));
+        }
+        return budgets;
+    }
+
+    /** The budget that was exceeded, {@code total} or a stage name, or null if none was. */
+    String timedOutStage() {
+        return timedOutStage;
+    }
+
+    String output() {
+        return output.toString();
+    }
+
+    /**
+     * Kills a process and its descendants, first politely and then forcibly after
+     * {@code grace}. The tree is captured up front because descendants are re-parented,
+     * and no longer listed, once the root exits.
+     */
+    static void destroyTree(Process process, Duration grace) throws InterruptedException {
+        List<ProcessHandle> tree = process.descendants().toList();
+        log.debug("Destroying analysis process {} and {} descendant(s)", process.pid(), tree.size());
+        tree.forEach(ProcessHandle::destroy);
+        process.destroy();
+        process.waitFor(grace.toMillis(), TimeUnit.MILLISECONDS);
+        tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        if (process.isAlive()) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void drain(Duration grace) throws InterruptedException {
+        // A grandchild that survived can keep the pipe open; don't wait on it forever
+        pump.join(grace.toMillis());
+    }
+
+    private void pumpOutput() {
+        char[] chunk = new char[8192];
+        StringBuilder line = new StringBuilder();
+        try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+            int n;
+            while ((n = reader.read(chunk)) != -1) {
+                output.append(chunk, 0, n);
+                for (int i = 0; i < n; i++) {
+                    char c = chunk[i];
+                    if (c == '\n') {
+                        onLine(line);
+                        line.setLength(0);
+                    } else if (line.length() < MAX_LINE_CHARS) {
+                        line.append(c);
+                    }
+                }
+            }
+            onLine(line);
+        } catch (IOException e) {
+            // The stream is closed when the process is killed
+            log.debug("Stopped reading analysis output: {}", e.getMessage());
+        }
+    }
+
+    private void onLine(CharSequence line) {
+        if (line.length() > STAGE_MARKER.length() && line.toString().startsWith(STAGE_MARKER)) {
+            stageStartedAt = System.nanoTime();
+            stage = line.subSequence(STAGE_MARKER.length(), line.length()).toString().trim();
+        }
+    }
+
+    /**
+     * Fixed-size ring buffer holding the last characters written to it.
+     */
+    static final class OutputTail {
+
+        private final char[] buffer;
+        private int next;
+        private long total;
+
+        OutputTail(int capacity) {
+            this.buffer = new char[Math.max(1, capacity)];
+        }
+
+        synchronized void append(char[] chars, int offset, int length) {
+            total += length;
+            if (length >= buffer.length) {
+                System.arraycopy(chars, offset + length - buffer.length, buffer, 0, buffer.length);
+                next = 0;
+                return;
+            }
+            int first = Math.min(length, buffer.length - next);
+            System.arraycopy(chars, offset, buffer, next, first);
+            System.arraycopy(chars, offset + first, buffer, 0, length - first);
+            next = (next + length) % buffer.length;
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (total <= buffer.length) {
+                return new String(buffer, 0, (int) total);
+            }
+            return "[" + (total - buffer.length) + " earlier characters dropped]\n"
+                    + new String(buffer, next, buffer.length - next) + new String(buffer, 0, next);
+        }
+    }
+}
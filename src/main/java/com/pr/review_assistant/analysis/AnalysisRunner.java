@@ -1,14 +1,23 @@
 package com.pr.review_assistant.analysis;
 
 import com.pr.review_assistant.database.ReviewJob;
+import com.pr.review_assistant.database.ReviewStateStore;
+import com.pr.review_assistant.database.ReviewStateStore.ReviewState;
 import com.pr.review_assistant.publisher.Publisher;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -19,36 +28,139 @@ public class AnalysisRunner {
     private final CheckstyleResultParser parser;
     private final RuleExplainer explainer;
     private final FindingFormatter formatter;
+    private final WorkspaceManager workspaceManager;
+    private final RepositoryMirrorCache mirrorCache;
+    private final MavenRepositoryCache mavenCache;
+    private final InProcessCheckstyleRunner inProcessCheckstyle;
+    private final DiffHunkParser diffParser;
+    private final SpotBugsResultParser spotBugsParser;
+    private final ReviewStateStore reviewStateStore;
+    private final PipelineMetrics metrics;
     
     @Value("${github.token}")
     private String githubToken;
+
+    /** {@code maven} runs the Checkstyle plugin in the script, {@code in-process} runs it in this JVM. */
+    @Value("${analysis.checkstyle.mode:in-process}")
+    private String checkstyleMode;
+
+    /** Wall-clock budget for the whole analysis script. */
+    @Value("${analysis.timeout.total:PT30M}")
+    private Duration totalTimeout;
+
+    /** Budgets for the stages the script announces, as {@code stage=duration,...}. */
+    @Value("${analysis.timeout.stages:checkout=PT10M,setup=PT5M,diff=PT2M,compile=PT15M,checkstyle=PT10M,spotbugs=PT15M}")
+    private String stageTimeouts;
+
+    /** How long killed processes get to exit before they are killed forcibly. */
+    @Value("${analysis.timeout.kill-grace:PT10S}")
+    private Duration killGrace;
+
+    /** How much of the script's output is kept for error reports. */
+    @Value("${analysis.output.tail-size:64KB}")
+    private DataSize outputTailSize;
+
+    private Map<String, Duration> stageBudgets;
     
     public AnalysisRunner(Publisher publisher, CheckstyleResultParser parser, 
-                         RuleExplainer explainer, FindingFormatter formatter) {
+                         RuleExplainer explainer, FindingFormatter formatter,
+                         WorkspaceManager workspaceManager, RepositoryMirrorCache mirrorCache,
+                         MavenRepositoryCache mavenCache, InProcessCheckstyleRunner inProcessCheckstyle,
+                         DiffHunkParser diffParser, SpotBugsResultParser spotBugsParser,
+                         ReviewStateStore reviewStateStore, PipelineMetrics metrics) {
         this.publisher = publisher;
         this.parser = parser;
         this.explainer = explainer;
         this.formatter = formatter;
+        this.workspaceManager = workspaceManager;
+        this.mirrorCache = mirrorCache;
+        this.mavenCache = mavenCache;
+        this.inProcessCheckstyle = inProcessCheckstyle;
+        this.diffParser = diffParser;
+        this.spotBugsParser = spotBugsParser;
+        this.reviewStateStore = reviewStateStore;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void parseStageBudgets() {
+        stageBudgets = AnalysisProcess.parseBudgets(stageTimeouts);
     }
     
     public void run(ReviewJob job) {
+        run(job, new CancellationToken());
+    }
+
+    public void run(ReviewJob job, CancellationToken cancellation) {
         log.info("Starting analysis for PR #{} on {}", job.getPrNumber(), job.getRepo());
         
+        AnalysisWorkspace workspace = null;
+        Path mirror = null;
+        Path mavenRepository = null;
+        boolean succeeded = false;
+        String outcome = "failed";
         try {
+            workspace = workspaceManager.create(job);
+            if (mirrorCache.isEnabled()) {
+                mirror = mirrorCache.acquire(job.getRepo());
+            }
+            if (mavenCache.isEnabled()) {
+                mavenRepository = mavenCache.acquire();
+            }
+
             ProcessBuilder pb = new ProcessBuilder("bash", "scripts/run-analysis.sh");
             pb.environment().put("REPO", job.getRepo());
             pb.environment().put("HEAD_SHA", job.getHeadSha());
             pb.environment().put("BASE_SHA", job.getBaseSha());
+            pb.environment().put("PR_NUMBER", Integer.toString(job.getPrNumber()));
             pb.environment().put("GITHUB_TOKEN", githubToken);
+            pb.environment().put("ARTIFACTS_DIR", workspace.getArtifactsDir().toString());
+            pb.environment().put("CHECKOUT_DIR", workspace.getCheckoutDir().toString());
+            if (mirror != null) {
+                pb.environment().put("MIRROR_DIR", mirror.toString());
+            }
+            if (mavenRepository != null) {
+                pb.environment().put("MAVEN_REPO_LOCAL", mavenRepository.toString());
+            }
+            pb.environment().put("CHECKSTYLE_MODE", checkstyleMode);
+            // A previous review against the same base lets the script analyze only what changed since
+            ReviewState previous = reviewStateStore.find(job);
+            if (previous != null && previous.baseSha().equals(job.getBaseSha())
+                    && !previous.headSha().equals(job.getHeadSha())) {
+                pb.environment().put("PREV_HEAD_SHA", previous.headSha());
+            } else {
+                previous = null;
+            }
             pb.redirectErrorStream(true);
             Process process = pb.start();
+            cancellation.attach(process);
             
-            // Capture output for debugging
-            String output = new BufferedReader(new InputStreamReader(process.getInputStream()))
-                    .lines().collect(Collectors.joining("\n"));
-            
-            int exitCode = process.waitFor();
+            // Keep only the tail of the output; a noisy build must not fill the heap
+            AnalysisProcess analysis = new AnalysisProcess(process, (int) outputTailSize.toBytes(),
+                    Thread.currentThread().getName());
+            int exitCode = analysis.await(totalTimeout, stageBudgets, killGrace);
+            String output = analysis.output();
+            cancellation.detach();
+            metrics.recordScriptStages(job.getRepo(), workspace.getStageTimings());
+            if (mavenRepository != null) {
+                mavenCache.recordJob(workspace.getArtifactsDir());
+            }
+
+            if (cancellation.isCancelled()) {
+                log.info("Analysis for PR #{} on {} at {} was superseded by a newer push",
+                        job.getPrNumber(), job.getRepo(), job.getHeadSha());
+                succeeded = true;
+                outcome = "cancelled";
+                return;
+            }
             
+            if (analysis.timedOutStage() != null) {
+                log.error("Analysis of PR #{} on {} exceeded its {} budget; killed the analysis processes. Output: {}",
+                        job.getPrNumber(), job.getRepo(), analysis.timedOutStage(), output);
+                outcome = "timeout";
+                return;
+            }
+
             if (exitCode != 0) {
                 log.error("Analysis script failed with exit code: {}. Output: {}", exitCode, output);
                 return;
@@ -57,19 +169,37 @@ public class AnalysisRunner {
             log.debug("Analysis script output: {}", output);
 
             // Parse and enhance results
-            List<Finding> findings = parser.parseCheckstyleResults("artifacts/checkstyle-result.xml");
+            List<Finding> findings = collectFindings(job, workspace, previous);
+            reviewStateStore.save(job, findings);
             
             // Enhance findings with explanations and suggestions
+            long start = System.nanoTime();
             List<Finding> enhancedFindings = findings.stream()
                     .map(explainer::enhanceFinding)
                     .collect(Collectors.toList());
+            metrics.recordStage(job.getRepo(), "explain", System.nanoTime() - start);
             
             log.info("Found {} findings for PR #{}", enhancedFindings.size(), job.getPrNumber());
             
+            if (cancellation.isCancelled()) {
+                log.info("Skipping publish for superseded analysis of PR #{} on {}", job.getPrNumber(), job.getRepo());
+                succeeded = true;
+                outcome = "cancelled";
+                return;
+            }
+
             // Format and publish results
+            start = System.nanoTime();
             String formattedResults = formatter.formatFindings(enhancedFindings);
+            metrics.recordStage(job.getRepo(), "format", System.nanoTime() - start);
             // Pass structured findings for inline comments
+            start = System.nanoTime();
             publisher.postResult(job, formattedResults, enhancedFindings);
+            metrics.recordStage(job.getRepo(), "publish", System.nanoTime() - start);
+            metrics.recordFindings(job.getRepo(), enhancedFindings.size());
+            metrics.recordEndToEnd(job.getRepo(), job.getReceivedAtMillis());
+            succeeded = true;
+            outcome = "success";
 
         } catch (InterruptedException e) {
             log.error("Analysis interrupted for PR #{} on {}: {}", 
@@ -78,6 +208,78 @@ public class AnalysisRunner {
         } catch (Exception e) {
             log.error("Analysis failed for PR #{} on {}: {}", 
                      job.getPrNumber(), job.getRepo(), e.getMessage(), e);
+        } finally {
+            metrics.recordOutcome(job.getRepo(), outcome);
+            if (workspace != null) {
+                workspaceManager.release(workspace, succeeded);
+            }
+            if (mirror != null) {
+                mirrorCache.release(mirror);
+            }
+            if (mavenRepository != null) {
+                mavenCache.release();
+            }
+        }
+    }
+
+    /**
+     * Streams Checkstyle and SpotBugs findings for the changed files, keeping only those
+     * on lines the PR actually added or modified. When the script only analyzed the files
+     * changed since {@code previous}, the other PR files keep their previous findings.
+     */
+    private List<Finding> collectFindings(ReviewJob job, AnalysisWorkspace workspace, ReviewState previous) throws Exception {
+        long start = System.nanoTime();
+        long checkstyleNanos = 0;
+        ChangedFiles changedFiles = ChangedFiles.load(workspace.getChangedFilesList());
+        ChangedLines changedLines = diffParser.parse(workspace.getDiff());
+        List<Finding> findings = new ArrayList<>();
+        int[] reported = {0};
+        Consumer<Finding> sink = finding -> {
+            reported[0]++;
+            if (changedLines.isEmpty() || changedLines.isChanged(finding)) {
+                findings.add(finding);
+            }
+        };
+
+        if (isInProcessCheckstyle()) {
+            long checkstyleStart = System.nanoTime();
+            List<Finding> checked = inProcessCheckstyle.check(workspace.getRepositoryDir(), changedFiles.getPaths());
+            checkstyleNanos = System.nanoTime() - checkstyleStart;
+            metrics.recordStage(job.getRepo(), "checkstyle", checkstyleNanos);
+            checked.forEach(sink);
+        } else {
+            parser.parseCheckstyleResults(workspace.getCheckstyleReport(), changedFiles, sink);
+        }
+        spotBugsParser.parseSpotBugsResults(workspace.getSpotbugsReport(), changedFiles, sink);
+        metrics.recordStage(job.getRepo(), "parse", System.nanoTime() - start - checkstyleNanos);
+
+        if (!changedLines.isEmpty()) {
+            log.info("Kept {} of {} findings on changed lines for PR #{}", findings.size(), reported[0], job.getPrNumber());
         }
+
+        if (previous != null && isIncremental(workspace)) {
+            ChangedFiles prFiles = ChangedFiles.load(workspace.getPrFilesList());
+            int reused = 0;
+            for (String path : prFiles.getPaths()) {
+                if (!changedFiles.getPaths().contains(path)) {
+                    List<Finding> cached = previous.findingsFor(path);
+                    findings.addAll(cached);
+                    reused += cached.size();
+                }
+            }
+            log.info("Incremental review of PR #{}: analyzed {} of {} files changed since {}, reused {} findings",
+                    job.getPrNumber(), changedFiles.getPaths().size(), prFiles.getPaths().size(),
+                    previous.headSha(), reused);
+        }
+        return findings;
+    }
+
+    private static boolean isIncremental(AnalysisWorkspace workspace) throws IOException {
+        Path scope = workspace.getAnalysisScope();
+        return Files.exists(scope) && "incremental".equals(Files.readString(scope).trim());
+    }
+
+    private boolean isInProcessCheckstyle() {
+        return "in-process".equalsIgnoreCase(checkstyleMode);
     }
 }
@@ -0,0 +1,41 @@
+package com.pr.review_assistant.analysis;
+
+import com.pr.review_assistant.database.ReviewJob;
+
+import java.nio.file.Path;
+
+/**
+ * Private directory tree for a single review job. The analysis script checks the
+ * repository out under {@link #getCheckoutDir()} and writes its reports into
+ * {@link #getArtifactsDir()}, so concurrent jobs never share files.
+ */
+public class AnalysisWorkspace {
+
+    static final String ARTIFACTS = "artifacts";
+    static final String CHECKOUT = "checkout";
+    /** Every Java file the PR changes against its base, written by the analysis script. */
+    static final String PR_FILES_LIST = "pr-files.txt";
+    /** {@code incremental} when only files changed since the previous head were analyzed. */
+    static final String ANALYSIS_SCOPE = "analysis-scope";
+
+    private final ReviewJob job;
+    private final Path root;
+
+    AnalysisWorkspace(ReviewJob job, Path root) {
+        this.job = job;
+        this.root = root;
+    }
+
+    public ReviewJob getJob() { return job; }
+    public Path getRoot() { return root; }
+    public Path getArtifactsDir() { return root.resolve(ARTIFACTS); }
+    public Path getCheckoutDir() { return root.resolve(CHECKOUT); }
+    public Path getRepositoryDir() { return getCheckoutDir().resolve("repo"); }
+    public Path getCheckstyleReport() { return getArtifactsDir().resolve("checkstyle-result.xml"); }
+    public Path getSpotbugsReport() { return getArtifactsDir().resolve("spotbugsXml.xml"); }
+    public Path getChangedFilesList() { return getArtifactsDir().resolve(CheckstyleResultParser.CHANGED_FILES_LIST); }
+    public Path getDiff() { return getArtifactsDir().resolve(DiffHunkParser.DIFF_FILE); }
+    public Path getPrFilesList() { return getArtifactsDir().resolve(PR_FILES_LIST); }
+    public Path getAnalysisScope() { return getArtifactsDir().resolve(ANALYSIS_SCOPE); }
+    public Path getStageTimings() { return getArtifactsDir().resolve(PipelineMetrics.STAGE_TIMINGS); }
+}
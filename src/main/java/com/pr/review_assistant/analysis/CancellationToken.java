@@ -0,0 +1,44 @@
+package com.pr.review_assistant.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lets the job queue abort an analysis that has been superseded by a newer push.
+ * Cancelling kills the attached analysis process, together with the git and Maven
+ * processes it spawned, and tells the runner not to publish anything.
+ */
+@Slf4j
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+    private volatile Process process;
+
+    public void cancel() {
+        cancelled = true;
+        Process attached = process;
+        if (attached != null) {
+            destroyTree(attached);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void attach(Process process) {
+        this.process = process;
+        if (cancelled) {
+            destroyTree(process);
+        }
+    }
+
+    void detach() {
+        this.process = null;
+    }
+
+    private static void destroyTree(Process process) {
+        log.debug("Destroying analysis process {} and its descendants", process.pid());
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
+}
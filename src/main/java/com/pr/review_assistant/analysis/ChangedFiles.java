@@ -0,0 +1,159 @@
+package com.pr.review_assistant.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Files changed by the PR, as listed by the analysis script, and the matching of paths
+ * found in tool reports back to those repository-relative paths.
+ *
+ * <p>Matching uses a trie of the changed paths keyed by their segments in reverse order
+ * (file name first), built once per job. Resolving a report path walks its segments from
+ * the end, so the cost depends on the path length, not on the number of changed files.
+ */
+@Slf4j
+public class ChangedFiles {
+
+    private final Set<String> paths;
+    private final Node root = new Node();
+
+    ChangedFiles(Set<String> paths) {
+        this.paths = Collections.unmodifiableSet(paths);
+        for (String path : paths) {
+            index(path);
+        }
+    }
+
+    public static ChangedFiles load(Path changedFilesPath) {
+        Set<String> changedFiles = new LinkedHashSet<>();
+        try {
+            if (Files.exists(changedFilesPath)) {
+                List<String> lines = Files.readAllLines(changedFilesPath);
+                for (String line : lines) {
+                    String trimmedLine = line.trim();
+                    if (!trimmedLine.isEmpty()) {
+                        changedFiles.add(trimmedLine);
+                    }
+                }
+                log.debug("Loaded {} changed files from {}", changedFiles.size(), changedFilesPath);
+            } else {
+                log.debug("Changed files list not found at {}, will process all files", changedFilesPath);
+            }
+        } catch (IOException e) {
+            log.warn("Could not read changed files list from {}: {}", changedFilesPath, e.getMessage());
+        }
+        return new ChangedFiles(changedFiles);
+    }
+
+    public boolean isEmpty() {
+        return paths.isEmpty();
+    }
+
+    public Set<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Finds the changed file a report path refers to. Report paths may be absolute
+     * (Checkstyle) or relative to a source root (SpotBugs), so either one may be a suffix
+     * of the other, compared segment by segment. When several changed files are suffixes
+     * of the report path, the longest one wins. When the report path is a suffix of
+     * several changed files, the first one listed wins.
+     *
+     * @return the repository-relative changed path, or {@code null} if none matches
+     */
+    public String match(String reportPath) {
+        if (reportPath == null || paths.isEmpty()) {
+            return null;
+        }
+        String path = reportPath.indexOf('\\') >= 0 ? reportPath.replace('\\', '/') : reportPath;
+        Node node = root;
+        String deepest = null;
+        int end = path.length();
+        while (true) {
+            while (end > 0 && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            if (end == 0) {
+                // Whole report path consumed: it names a changed file or a suffix of one
+                return deepest != null ? deepest : node == root ? null : node.firstBelow;
+            }
+            int start = path.lastIndexOf('/', end - 1) + 1;
+            Node child = node.children == null ? null : node.children.get(path.substring(start, end));
+            if (child == null) {
+                return deepest;
+            }
+            node = child;
+            if (node.terminal != null) {
+                deepest = node.terminal;
+            }
+            end = start;
+        }
+    }
+
+    static String toRelativePath(String fullPath) {
+        if (fullPath == null) return "";
+        String p = fullPath.replace('\\', '/');
+
+        // If we can find the repo root segment, trim up to and including it
+        int idx = p.lastIndexOf("/repo/");
+        if (idx >= 0) {
+            p = p.substring(idx + "/repo/".length());
+        } else if (p.startsWith("/app/")) {
+            p = p.substring("/app/".length());
+        }
+
+        // Collapse any duplicate slashes
+        if (!p.contains("//")) {
+            return p;
+        }
+        StringBuilder collapsed = new StringBuilder(p.length());
+        for (int i = 0; i < p.length(); i++) {
+            char c = p.charAt(i);
+            if (c != '/' || collapsed.length() == 0 || collapsed.charAt(collapsed.length() - 1) != '/') {
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+
+    private void index(String changedPath) {
+        Node node = root;
+        int end = changedPath.length();
+        while (end > 0) {
+            int start = changedPath.lastIndexOf('/', end - 1) + 1;
+            if (start < end) {
+                node = node.child(changedPath.substring(start, end));
+                if (node.firstBelow == null) {
+                    node.firstBelow = changedPath;
+                }
+            }
+            end = start - 1;
+        }
+        if (node != root && node.terminal == null) {
+            node.terminal = changedPath;
+        }
+    }
+
+    private static final class Node {
+        private Map<String, Node> children;
+        private String terminal;
+        private String firstBelow;
+
+        private Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+    }
+}
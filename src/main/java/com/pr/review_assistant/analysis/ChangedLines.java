@@ -0,0 +1,66 @@
+package com.pr.review_assistant.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lines added or modified by a PR, stored per file as sorted, non-overlapping intervals.
+ * Lookups are a binary search over the intervals of one file.
+ */
+public class ChangedLines {
+
+    private final Map<String, int[][]> rangesByFile;
+
+    ChangedLines(Map<String, int[][]> rangesByFile) {
+        this.rangesByFile = rangesByFile;
+    }
+
+    public static ChangedLines empty() {
+        return new ChangedLines(Collections.emptyMap());
+    }
+
+    public boolean isEmpty() {
+        return rangesByFile.isEmpty();
+    }
+
+    public boolean containsFile(String path) {
+        return rangesByFile.containsKey(path);
+    }
+
+    public boolean contains(String path, int line) {
+        int[][] ranges = rangesByFile.get(path);
+        if (ranges == null) {
+            return false;
+        }
+        int[] starts = ranges[0];
+        int[] ends = ranges[1];
+        int idx = Arrays.binarySearch(starts, line);
+        if (idx >= 0) {
+            return true;
+        }
+        int candidate = -idx - 2; // last interval starting before the line
+        return candidate >= 0 && line <= ends[candidate];
+    }
+
+    /**
+     * Keeps findings on changed lines. File-level findings (no line number) are kept for
+     * any file the PR touched.
+     */
+    public List<Finding> retainChanged(List<Finding> findings) {
+        List<Finding> retained = new ArrayList<>(findings.size());
+        for (Finding finding : findings) {
+            if (isChanged(finding)) {
+                retained.add(finding);
+            }
+        }
+        return retained;
+    }
+
+    public boolean isChanged(Finding finding) {
+        String path = finding.getRelativePath();
+        return finding.getLine() <= 0 ? containsFile(path) : contains(path, finding.getLine());
+    }
+}
@@ -2,174 +2,117 @@ package com.pr.review_assistant.analysis;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.File;
-import java.io.IOException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Consumer;
 
+/**
+ * Streams a Checkstyle XML report with StAX. Findings are handed to the caller as each
+ * {@code <error>} is read, and files outside the PR's changed-file list are skipped
+ * without building any tree, so memory use does not grow with the report size.
+ */
 @Slf4j
 @Component
 public class CheckstyleResultParser {
-    
-    public List<Finding> parseCheckstyleResults(String xmlFilePath) {
-        List<Finding> findings = new ArrayList<>();
-        
-        try {
-            File xmlFile = new File(xmlFilePath);
-            if (!xmlFile.exists()) {
-                log.warn("Checkstyle results file not found: {}", xmlFilePath);
-                return findings;
-            }
-            
-            // Load the list of changed files to filter results
-            Set<String> changedFiles = loadChangedFiles();
-            
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(xmlFile);
-            
-            NodeList fileNodes = document.getElementsByTagName("file");
-            
-            for (int i = 0; i < fileNodes.getLength(); i++) {
-                Element fileElement = (Element) fileNodes.item(i);
-                String filePath = fileElement.getAttribute("name");
 
-                // Skip files that are not in the changed files list
-                if (!changedFiles.isEmpty() && !isFileInChangedList(filePath, changedFiles)) {
-                    log.debug("Skipping file not in changed list: {}", filePath);
-                    continue;
-                }
+    /** Name of the changed-files list the analysis script writes next to its reports. */
+    public static final String CHANGED_FILES_LIST = "changed-files.txt";
 
-                // Derive a good relative path for GitHub API by matching changed files first
-                String relative = toRelativePath(filePath);
-                for (String cf : changedFiles) {
-                    if (relative.endsWith(cf) || filePath.endsWith(cf)) {
-                        relative = cf; // use exact changed file path
-                        break;
-                    }
-                }
-
-                NodeList errorNodes = fileElement.getElementsByTagName("error");
+    /**
+     * Parses a report, filtering by the changed-files list stored in the same directory.
+     */
+    public List<Finding> parseCheckstyleResults(String xmlFilePath) {
+        Path xmlPath = Paths.get(xmlFilePath);
+        Path directory = xmlPath.toAbsolutePath().getParent();
+        return parseCheckstyleResults(xmlPath, directory.resolve(CHANGED_FILES_LIST));
+    }
 
-                for (int j = 0; j < errorNodes.getLength(); j++) {
-                    Element errorElement = (Element) errorNodes.item(j);
+    public List<Finding> parseCheckstyleResults(Path xmlFilePath, Path changedFilesPath) {
+        List<Finding> findings = new ArrayList<>();
+        parseCheckstyleResults(xmlFilePath, ChangedFiles.load(changedFilesPath), findings::add);
+        return findings;
+    }
 
-                    Finding finding = Finding.builder()
-                            .file(extractFileName(filePath))
-                            .relativePath(relative)
-                            .line(parseIntegerAttribute(errorElement.getAttribute("line"), 0))
-                            .column(parseIntegerAttribute(errorElement.getAttribute("column"), 0))
-                            .severity(errorElement.getAttribute("severity"))
-                            .rule(extractRuleName(errorElement.getAttribute("source")))
-                            .message(errorElement.getAttribute("message"))
-                            .source(errorElement.getAttribute("source"))
-                            .build();
+    /**
+     * Streams findings for changed files to {@code sink}. An empty changed-file list
+     * keeps every file.
+     *
+     * @return the number of findings emitted
+     */
+    public int parseCheckstyleResults(Path xmlFilePath, ChangedFiles changedFiles, Consumer<Finding> sink) {
+        if (!Files.exists(xmlFilePath)) {
+            log.warn("Checkstyle results file not found: {}", xmlFilePath);
+            return 0;
+        }
 
-                    findings.add(finding);
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(xmlFilePath))) {
+            XMLStreamReader reader = XmlReports.open(in);
+            try {
+                String filePath = null;
+                String fileName = null;
+                String relative = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String element = reader.getLocalName();
+                        if ("file".equals(element)) {
+                            filePath = XmlReports.attribute(reader, "name");
+                            relative = resolveRelativePath(filePath, changedFiles);
+                            fileName = relative == null ? null : extractFileName(filePath);
+                        } else if ("error".equals(element) && relative != null) {
+                            String source = XmlReports.attribute(reader, "source");
+                            sink.accept(Finding.builder()
+                                    .file(fileName)
+                                    .relativePath(relative)
+                                    .line(XmlReports.parseInt(reader.getAttributeValue(null, "line"), 0))
+                                    .column(XmlReports.parseInt(reader.getAttributeValue(null, "column"), 0))
+                                    .severity(XmlReports.attribute(reader, "severity"))
+                                    .rule(extractRuleName(source))
+                                    .message(XmlReports.attribute(reader, "message"))
+                                    .source(source)
+                                    .build());
+                            count++;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && "file".equals(reader.getLocalName())) {
+                        relative = null;
+                    }
                 }
+            } finally {
+                reader.close();
             }
-            
-            log.info("Parsed {} findings from checkstyle results", findings.size());
-            
+            log.info("Parsed {} findings from checkstyle results", count);
         } catch (Exception e) {
             log.error("Error parsing checkstyle results: {}", e.getMessage(), e);
         }
-        
-        return findings;
+        return count;
+    }
+
+    /**
+     * @return the path to report for {@code filePath}, or {@code null} to skip the file
+     */
+    private String resolveRelativePath(String filePath, ChangedFiles changedFiles) {
+        if (changedFiles.isEmpty()) {
+            return ChangedFiles.toRelativePath(filePath);
+        }
+        return changedFiles.match(filePath);
     }
-    
+
     private String extractFileName(String fullPath) {
-        if (fullPath == null) return "";
         int lastSlash = fullPath.lastIndexOf('/');
         return lastSlash >= 0 ? fullPath.substring(lastSlash + 1) : fullPath;
     }
 
-    private String toRelativePath(String fullPath) {
-        if (fullPath == null) return "";
-        String p = fullPath.replace("\\", "/");
-
-        // If we can find the repo root segment, trim up to and including it
-        int idx = p.lastIndexOf("/repo/");
-        if (idx >= 0) {
-            p = p.substring(idx + "/repo/".length());
-        } else if (p.startsWith("/app/")) {
-            p = p.substring("/app/".length());
-        }
-
-        // Collapse any duplicate slashes
-        return p.replaceAll("/+", "/");
-    }
-    
     private String extractRuleName(String source) {
-        if (source == null) return "";
         int lastDot = source.lastIndexOf('.');
         return lastDot >= 0 ? source.substring(lastDot + 1) : source;
     }
-    
-    private int parseIntegerAttribute(String value, int defaultValue) {
-        if (value == null || value.trim().isEmpty()) {
-            return defaultValue;
-        }
-        try {
-            return Integer.parseInt(value.trim());
-        } catch (NumberFormatException e) {
-            log.debug("Could not parse integer value '{}', using default: {}", value, defaultValue);
-            return defaultValue;
-        }
-    }
-    
-    private Set<String> loadChangedFiles() {
-        Set<String> changedFiles = new HashSet<>();
-        Path changedFilesPath = Paths.get("artifacts/changed-files.txt");
-        
-        try {
-            if (Files.exists(changedFilesPath)) {
-                List<String> lines = Files.readAllLines(changedFilesPath);
-                for (String line : lines) {
-                    String trimmedLine = line.trim();
-                    if (!trimmedLine.isEmpty()) {
-                        changedFiles.add(trimmedLine);
-                    }
-                }
-                log.debug("Loaded {} changed files from {}", changedFiles.size(), changedFilesPath);
-            } else {
-                log.debug("Changed files list not found at {}, will process all files", changedFilesPath);
-            }
-        } catch (IOException e) {
-            log.warn("Could not read changed files list from {}: {}", changedFilesPath, e.getMessage());
-        }
-        
-        return changedFiles;
-    }
-    
-    private boolean isFileInChangedList(String filePath, Set<String> changedFiles) {
-        if (filePath == null || changedFiles.isEmpty()) {
-            return false;
-        }
-        
-        // Extract just the file path relative to the project root
-        String normalizedPath = toRelativePath(filePath);
-        
-        // Check if any of the changed files match this file
-        for (String changedFile : changedFiles) {
-            if (normalizedPath.endsWith(changedFile) || changedFile.endsWith(normalizedPath)) {
-                log.debug("File {} matches changed file {}", filePath, changedFile);
-                return true;
-            }
-        }
-        
-        log.debug("File {} not found in changed files list", filePath);
-        return false;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.pr.review_assistant.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the unified diff written by the analysis script ({@code git diff --unified=0})
+ * and turns each file's hunks into the line ranges present on the head side.
+ */
+@Slf4j
+@Component
+public class DiffHunkParser {
+
+    /** Name of the diff the analysis script writes into the job's artifacts. */
+    public static final String DIFF_FILE = "changes.diff";
+
+    public ChangedLines parse(Path diffFile) {
+        if (!Files.exists(diffFile)) {
+            log.debug("Diff not found at {}, line filtering disabled", diffFile);
+            return ChangedLines.empty();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(diffFile, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        } catch (IOException e) {
+            log.warn("Could not read diff {}: {}", diffFile, e.getMessage());
+            return ChangedLines.empty();
+        }
+    }
+
+    public ChangedLines parse(Reader diff) throws IOException {
+        BufferedReader reader = diff instanceof BufferedReader ? (BufferedReader) diff : new BufferedReader(diff);
+        Map<String, List<int[]>> hunks = new HashMap<>();
+        List<int[]> current = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("+++ ")) {
+                String path = stripPrefix(line.substring(4));
+                current = path == null ? null : hunks.computeIfAbsent(path, p -> new ArrayList<>());
+            } else if (line.startsWith("@@ ") && current != null) {
+                int[] range = parseNewRange(line);
+                if (range != null) {
+                    current.add(range);
+                }
+            }
+        }
+
+        Map<String, int[][]> ranges = new HashMap<>(hunks.size() * 2);
+        hunks.forEach((path, list) -> ranges.put(path, merge(list)));
+        return new ChangedLines(ranges);
+    }
+
+    /**
+     * Extracts the head-side range from a header like {@code @@ -12,3 +14,5 @@}. A count of
+     * zero is a pure deletion and has no head-side lines.
+     */
+    private static int[] parseNewRange(String header) {
+        int plus = header.indexOf(" +");
+        if (plus < 0) {
+            return null;
+        }
+        int end = header.indexOf(' ', plus + 2);
+        String spec = header.substring(plus + 2, end < 0 ? header.length() : end);
+        try {
+            int comma = spec.indexOf(',');
+            int start = Integer.parseInt(comma < 0 ? spec : spec.substring(0, comma));
+            int count = comma < 0 ? 1 : Integer.parseInt(spec.substring(comma + 1));
+            return count == 0 ? null : new int[] {start, start + count - 1};
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed hunk header: {}", header);
+            return null;
+        }
+    }
+
+    private static String stripPrefix(String path) {
+        String p = path.trim();
+        if (p.startsWith("\"") && p.endsWith("\"") && p.length() > 1) {
+            p = p.substring(1, p.length() - 1);
+        }
+        if ("/dev/null".equals(p)) {
+            return null; // deleted file
+        }
+        return p.startsWith("b/") ? p.substring(2) : p;
+    }
+
+    private static int[][] merge(List<int[]> ranges) {
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] starts = new int[ranges.size()];
+        int[] ends = new int[ranges.size()];
+        int n = 0;
+        for (int[] range : ranges) {
+            if (n > 0 && range[0] <= ends[n - 1] + 1) {
+                ends[n - 1] = Math.max(ends[n - 1], range[1]);
+            } else {
+                starts[n] = range[0];
+                ends[n] = range[1];
+                n++;
+            }
+        }
+        return new int[][] {Arrays.copyOf(starts, n), Arrays.copyOf(ends, n)};
+    }
+}
@@ -1,23 +1,79 @@
 package com.pr.review_assistant.analysis;
 
-import lombok.Data;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-@Data
-@Builder
+/**
+ * A single finding. Reports repeat the same few paths and rule names thousands of times,
+ * so those strings are interned, and what {@link RuleExplainer} adds is a reference to a
+ * shared {@link RuleDescriptor} rather than per-finding copies of its text.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
 public class Finding {
-    private String file;           // Display name (basename)
-    private String relativePath;   // Path relative to repo root (required for inline comments)
-    private int line;
-    private int column;
-    private String severity;
-    private String rule;
-    private String message;
-    private String source;
-    
-    // Enhanced fields
-    private String explanation;
-    private String suggestion;
-    private String category;
-    private String impact;
-}
\ No newline at end of file
+    private final String file;           // Display name (basename)
+    private final String relativePath;   // Path relative to repo root (required for inline comments)
+    private final int line;
+    private final int column;
+    private final Severity severity;
+    private final String rule;
+    private final String message;
+    private final String source;
+
+    // Set by RuleExplainer
+    private RuleDescriptor descriptor;
+
+    @Builder
+    private Finding(String file, String relativePath, int line, int column, Severity severity,
+                    String rule, String message, String source, RuleDescriptor descriptor) {
+        this.file = intern(file);
+        this.relativePath = intern(relativePath);
+        this.line = line;
+        this.column = column;
+        this.severity = severity;
+        this.rule = intern(rule);
+        this.message = message;
+        this.source = intern(source);
+        this.descriptor = descriptor;
+    }
+
+    public void describe(RuleDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    public String getExplanation() {
+        return descriptor == null ? null : descriptor.explanation();
+    }
+
+    public String getSuggestion() {
+        return descriptor == null ? null : descriptor.suggestion();
+    }
+
+    public String getCategory() {
+        return descriptor == null ? null : descriptor.category();
+    }
+
+    public Impact getImpact() {
+        return descriptor == null ? null : descriptor.impact();
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    public static class FindingBuilder {
+
+        /** Accepts a tool's severity label, see {@link Severity#of(String)}. */
+        public FindingBuilder severity(String label) {
+            return severity(Severity.of(label));
+        }
+
+        public FindingBuilder severity(Severity severity) {
+            this.severity = severity;
+            return this;
+        }
+    }
+}
@@ -1,72 +1,152 @@
 package com.pr.review_assistant.analysis;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Renders the summary comment. Severity and category counts are gathered in one pass
+ * over the findings, and the comment is written straight into an {@link Appendable}.
+ * GitHub rejects comments over 65,536 characters, so details are only written while they
+ * fit in {@code analysis.summary.max-chars}; errors come first, and whatever does not fit
+ * is collapsed into per-severity counts.
+ */
 @Component
 public class FindingFormatter {
-    
+
+    static final int DEFAULT_MAX_CHARS = 65_000;
+    private static final Severity[] SEVERITIES = Severity.values();
+    /** Room kept for the note listing the findings whose details did not fit. */
+    private static final int OMITTED_NOTE_RESERVE = 256;
+
+    /** Leaves room below GitHub's limit for the marker the publisher prepends. */
+    @Value("${analysis.summary.max-chars:" + DEFAULT_MAX_CHARS + "}")
+    private int maxChars = DEFAULT_MAX_CHARS;
+
+    public FindingFormatter() {
+    }
+
+    FindingFormatter(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
     public String formatFindings(List<Finding> findings) {
+        StringBuilder comment = new StringBuilder((int) Math.min(maxChars, 4096L + findings.size() * 600L));
+        try {
+            formatFindings(findings, comment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return comment.toString();
+    }
+
+    /**
+     * Writes the comment for {@code findings} to {@code out}, at most
+     * {@code analysis.summary.max-chars} characters of it.
+     */
+    public void formatFindings(List<Finding> findings, Appendable out) throws IOException {
         if (findings.isEmpty()) {
-            return "Code Review Results\n\n" +
+            out.append("Code Review Results\n\n" +
                    "**No issues found!** Your code looks clean and follows best practices!\n\n" +
                    "---\n" +
-                   "*Generated by PR Review Assistant*";
+                   "*Generated by PR Review Assistant*");
+            return;
         }
-        
-        StringBuilder comment = new StringBuilder();
+
+        // One pass: counts per severity and category, and the findings of each detailed severity
+        int[] severityCounts = new int[SEVERITIES.length];
+        Map<String, int[]> categoryCounts = new LinkedHashMap<>();
+        List<List<Finding>> bySeverity = new ArrayList<>(SEVERITIES.length);
+        for (int i = 0; i < SEVERITIES.length; i++) {
+            bySeverity.add(new ArrayList<>());
+        }
+        for (Finding finding : findings) {
+            int severity = (finding.getSeverity() == null ? Severity.INFO : finding.getSeverity()).ordinal();
+            severityCounts[severity]++;
+            bySeverity.get(severity).add(finding);
+            categoryCounts.computeIfAbsent(String.valueOf(finding.getCategory()), k -> new int[1])[0]++;
+        }
+
+        StringBuilder comment = new StringBuilder(1024);
         comment.append("Code Review Results\n\n");
-        
-        // Summary
-        Map<String, Long> severityCounts = findings.stream()
-                .collect(Collectors.groupingBy(Finding::getSeverity, Collectors.counting()));
-        
-        Map<String, Long> categoryCounts = findings.stream()
-                .collect(Collectors.groupingBy(Finding::getCategory, Collectors.counting()));
-        
         comment.append("**Summary:** Found ").append(findings.size()).append(" issue(s) that need attention\n\n");
-        
+
         // Severity breakdown
         comment.append("Issue Breakdown\n");
-        severityCounts.forEach((severity, count) -> {
-            String emoji = getSeverityEmoji(severity);
-            comment.append("- ").append(emoji).append(" **").append(severity).append("**: ").append(count).append(" issue(s)\n");
-        });
+        for (Severity severity : SEVERITIES) {
+            if (severityCounts[severity.ordinal()] > 0) {
+                appendCount(comment, getSeverityEmoji(severity), severity.label(), severityCounts[severity.ordinal()]);
+            }
+        }
         comment.append("\n");
-        
+
         // Category breakdown
         comment.append("Categories\n");
-        categoryCounts.forEach((category, count) -> {
-            String emoji = getCategoryEmoji(category);
-            comment.append("- ").append(emoji).append(" **").append(category).append("**: ").append(count).append(" issue(s)\n");
-        });
+        categoryCounts.forEach((category, count) -> appendCount(comment, getCategoryEmoji(category), category, count[0]));
         comment.append("\n");
-        
+
         // Detailed findings
         comment.append("Detailed Issues\n\n");
-        
-        // Group by severity for better organization
-        Map<String, List<Finding>> findingsBySeverity = findings.stream()
-                .collect(Collectors.groupingBy(Finding::getSeverity));
-        
-        // Process in order: error, warning, info
-        String[] severityOrder = {"error", "warning", "info"};
-        
-        for (String severity : severityOrder) {
-            List<Finding> severityFindings = findingsBySeverity.get(severity);
-            if (severityFindings != null && !severityFindings.isEmpty()) {
-                comment.append("#### ").append(getSeverityEmoji(severity)).append(" ").append(severity.toUpperCase()).append(" Issues\n\n");
-                
-                for (int i = 0; i < severityFindings.size(); i++) {
-                    Finding finding = severityFindings.get(i);
-                    formatSingleFinding(comment, finding, i + 1);
+        out.append(comment);
+
+        String closing = closing();
+        long remaining = (long) maxChars - comment.length() - closing.length() - OMITTED_NOTE_RESERVE;
+        int[] omitted = new int[SEVERITIES.length];
+        StringBuilder section = new StringBuilder(1024);
+        for (int s = 0; s < SEVERITIES.length; s++) {
+            List<Finding> severityFindings = bySeverity.get(s);
+            if (severityFindings.isEmpty()) {
+                continue;
+            }
+            Severity severity = SEVERITIES[s];
+            section.setLength(0);
+            section.append("#### ").append(getSeverityEmoji(severity)).append(" ").append(severity.name()).append(" Issues\n\n");
+            for (int i = 0; i < severityFindings.size(); i++) {
+                if (remaining <= 0) {
+                    omitted[s] = severityFindings.size() - i;
+                    break;
+                }
+                formatSingleFinding(section, severityFindings.get(i), i + 1);
+                if (section.length() > remaining) {
+                    // Once one detail does not fit, every lower-severity finding is counted instead
+                    remaining = 0;
+                    omitted[s] = severityFindings.size() - i;
+                    break;
                 }
+                out.append(section);
+                remaining -= section.length();
+                section.setLength(0);
             }
         }
-        
+        appendOmitted(out, omitted);
+        out.append(closing);
+    }
+
+    private static void appendCount(StringBuilder comment, String emoji, String name, int count) {
+        comment.append("- ").append(emoji).append(" **").append(name).append("**: ").append(count).append(" issue(s)\n");
+    }
+
+    private static void appendOmitted(Appendable out, int[] omitted) throws IOException {
+        StringBuilder note = new StringBuilder();
+        for (int s = 0; s < SEVERITIES.length; s++) {
+            if (omitted[s] > 0) {
+                note.append(note.length() == 0 ? "" : ", ").append(omitted[s]).append(" ").append(SEVERITIES[s].label());
+            }
+        }
+        if (note.length() > 0) {
+            out.append("*Details of ").append(note).append(" issue(s) were left out to stay within GitHub's comment size limit;")
+               .append(" run Checkstyle and SpotBugs locally for the full list.*\n\n");
+        }
+    }
+
+    private static String closing() {
+        StringBuilder comment = new StringBuilder(1024);
         // Action items
         comment.append("Next Steps\n\n");
         comment.append("1. **Review each issue above** - Focus on high-impact issues first\n");
@@ -82,7 +162,6 @@ public class FindingFormatter {
         
         comment.append("---\n");
         comment.append("*Generated by PR Review Assistant | Analysis completed at: ").append(java.time.LocalDateTime.now().toString()).append("*");
-        
         return comment.toString();
     }
     
@@ -116,18 +195,17 @@ public class FindingFormatter {
         
         // Rule info
         comment.append("Category:** ").append(finding.getCategory()).append(" | ");
-        comment.append("Impact: ").append(finding.getImpact()).append(" | ");
+        comment.append("Impact: ").append(finding.getImpact() == null ? null : finding.getImpact().label()).append(" | ");
         comment.append("Rule: `").append(finding.getRule()).append("`\n\n");
         
         comment.append("</details>\n\n");
     }
     
-    private String getSeverityEmoji(String severity) {
-        switch (severity.toLowerCase()) {
-            case "error": return "🚨";
-            case "warning": return "⚠️";
-            case "info": return "ℹ️";
-            default: return "📝";
+    private String getSeverityEmoji(Severity severity) {
+        switch (severity) {
+            case ERROR: return "🚨";
+            case WARNING: return "⚠️";
+            default: return "ℹ️";
         }
     }
     
@@ -142,12 +220,14 @@ public class FindingFormatter {
         }
     }
     
-    private String getImpactBadge(String impact) {
+    private String getImpactBadge(Impact impact) {
+        if (impact == null) {
+            return "⚪";
+        }
         switch (impact) {
-            case "High": return "🔴";
-            case "Medium": return "🟡";
-            case "Low": return "🟢";
-            default: return "⚪";
+            case HIGH: return "🔴";
+            case MEDIUM: return "🟡";
+            default: return "🟢";
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,229 @@
+package com.pr.review_assistant.analysis;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of per-file findings. A file's findings only depend on its
+ * content, its path (suppressions and some checks match on it), the rule set including
+ * the files it references, and the tool version, so they are keyed by the file's git blob
+ * SHA, its path, a hash of the rule set and the tool version, and can be reused across
+ * PRs and pushes that contain the same file.
+ *
+ * <p>Recently used entries are kept in memory, bounded by
+ * {@code analysis.findings-cache.max-entries}. Every entry is also written as JSON under
+ * {@code analysis.findings-cache.root}, which is trimmed, least recently used first, to
+ * {@code analysis.findings-cache.max-size}.
+ */
+@Slf4j
+@Component
+public class FindingsCache {
+
+    private static final TypeReference<List<CachedFinding>> ENTRY_TYPE = new TypeReference<>() {};
+
+    private final boolean enabled;
+    private final Path root;
+    private final long maxSizeBytes;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, List<CachedFinding>> memory;
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+
+    public FindingsCache(@Value("${analysis.findings-cache.enabled:true}") boolean enabled,
+                         @Value("${analysis.findings-cache.root:findings-cache}") String root,
+                         @Value("${analysis.findings-cache.max-entries:10000}") int maxEntries,
+                         @Value("${analysis.findings-cache.max-size:1GB}") DataSize maxSize,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.maxSizeBytes = maxSize.toBytes();
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<CachedFinding>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.memoryHits = lookups(meterRegistry, "memory");
+        this.diskHits = lookups(meterRegistry, "disk");
+        this.misses = lookups(meterRegistry, "miss");
+        this.bytesSaved = Counter.builder("review.findings.cache.saved")
+                .description("Source bytes whose findings came from the cache instead of a tool run")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("review.findings.cache.lookups")
+                .description("Findings cache lookups by the tier that answered them")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached findings for a file, or {@code null} on a miss.
+     *
+     * @param key         from {@link #key(byte[], String, String, String)}
+     * @param sourceBytes size of the file, counted as saved on a hit
+     */
+    public List<CachedFinding> get(String key, long sourceBytes) {
+        if (!enabled) {
+            return null;
+        }
+        List<CachedFinding> cached = memory.get(key);
+        if (cached != null) {
+            memoryHits.increment();
+            bytesSaved.increment(sourceBytes);
+            return cached;
+        }
+        Path file = entryPath(key);
+        if (Files.exists(file)) {
+            try {
+                cached = List.copyOf(objectMapper.readValue(file.toFile(), ENTRY_TYPE));
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                memory.put(key, cached);
+                diskHits.increment();
+                bytesSaved.increment(sourceBytes);
+                return cached;
+            } catch (IOException e) {
+                log.debug("Ignoring unreadable findings cache entry {}: {}", file, e.getMessage());
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, List<CachedFinding> findings) {
+        if (!enabled) {
+            return;
+        }
+        List<CachedFinding> entry = List.copyOf(findings);
+        memory.put(key, entry);
+        Path file = entryPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            // Write then rename so concurrent readers never see a partial entry
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), entry);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write findings cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the cache key for a file's content at a path under a rule set and tool
+     * version. The content is hashed the way git hashes blobs, so that part matches
+     * {@code git hash-object}.
+     *
+     * @param path the file's path relative to the repository root
+     */
+    public static String key(byte[] content, String path, String rulesetHash, String toolVersion) {
+        String blob = HexFormat.of().formatHex(digest("SHA-1",
+                ("blob " + content.length + "\0").getBytes(StandardCharsets.UTF_8), content));
+        return HexFormat.of().formatHex(digest("SHA-256",
+                (blob + ":" + rulesetHash + ":" + toolVersion + ":" + path).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.findings-cache.sweep-interval:PT30M}")
+    public void enforceBudget() {
+        if (!enabled || !Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                entries.add(path);
+                total += Files.size(path);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not scan findings cache {}: {}", root, e.getMessage());
+            return;
+        }
+        if (total <= maxSizeBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(FindingsCache::lastModified));
+        int evicted = 0;
+        for (Path entry : entries) {
+            if (total <= maxSizeBytes) {
+                break;
+            }
+            try {
+                long size = Files.size(entry);
+                Files.deleteIfExists(entry);
+                total -= size;
+                evicted++;
+            } catch (IOException e) {
+                log.debug("Could not evict findings cache entry {}: {}", entry, e.getMessage());
+            }
+        }
+        log.info("Evicted {} findings cache entries; {} bytes remain", evicted, total);
+    }
+
+    private Path entryPath(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2) + ".json");
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] digest(String algorithm, byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(algorithm);
+            for (byte[] part : parts) {
+                digest.update(part);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+
+    /** The file-independent part of a finding, as stored in the cache. */
+    public record CachedFinding(int line, int column, Severity severity, String rule, String message, String source) {
+
+        public CachedFinding {
+            // Entries of the same rule set repeat these, keep one copy
+            rule = rule == null ? null : rule.intern();
+            source = source == null ? null : source.intern();
+        }
+    }
+}
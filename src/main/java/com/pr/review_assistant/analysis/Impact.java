@@ -0,0 +1,20 @@
+package com.pr.review_assistant.analysis;
+
+/**
+ * How much fixing a finding matters, as judged by {@link RuleExplainer}.
+ */
+public enum Impact {
+    HIGH("High"),
+    MEDIUM("Medium"),
+    LOW("Low");
+
+    private final String label;
+
+    Impact(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
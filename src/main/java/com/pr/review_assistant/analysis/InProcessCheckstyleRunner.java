@@ -0,0 +1,332 @@
+package com.pr.review_assistant.analysis;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.ThreadModeSettings;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs Checkstyle as a library inside the service JVM instead of forking Maven. Only the
+ * files changed by the PR are checked, and violations become {@link Finding}s directly,
+ * without writing and re-parsing an XML report.
+ *
+ * <p>The analyzed repository's own {@code checkstyle.xml} is used when it has one,
+ * otherwise the service's {@code analysis.checkstyle.config}. Parsed configurations are
+ * cached by a hash of their content, so each distinct rule set is only loaded once. The
+ * per-file results in the {@link FindingsCache} are keyed by the configuration together
+ * with every file it references, such as suppressions, so editing those invalidates
+ * them too. The cached copy keeps {@code ${config_loc}} unexpanded; it and the relative
+ * {@code file} of suppression filters are bound to the job's checkout on every run, so
+ * repository suppressions apply just as they do when Maven runs the plugin from the
+ * checkout.
+ *
+ * <p>A file Checkstyle cannot process, e.g. one that does not parse, is logged and skipped
+ * rather than failing the whole check.
+ */
+@Slf4j
+@Component
+public class InProcessCheckstyleRunner {
+
+    static final String REPO_CONFIG = "checkstyle.xml";
+
+    /** Left in cached configurations in place of the config file's directory. */
+    private static final String CONFIG_LOC = "${config_loc}";
+    private static final Set<String> SUPPRESSION_FILTERS = Set.of("SuppressionFilter", "SuppressionXpathFilter");
+    /** Key of the violation Checker reports for a file it could not process. */
+    private static final String PROCESSING_FAILED = "general.exception";
+
+    /** Part of every findings cache key, so upgrading Checkstyle invalidates old results. */
+    static final String CHECKSTYLE_VERSION = Optional.ofNullable(Checker.class.getPackage().getImplementationVersion())
+            .orElse("unknown");
+
+    private final Path defaultConfig;
+    private final FindingsCache findingsCache;
+    private final Map<String, Configuration> configurations = new ConcurrentHashMap<>();
+
+    public InProcessCheckstyleRunner(@Value("${analysis.checkstyle.config:checkstyle.xml}") String defaultConfig,
+                                     FindingsCache findingsCache) {
+        this.defaultConfig = Paths.get(defaultConfig).toAbsolutePath().normalize();
+        this.findingsCache = findingsCache;
+    }
+
+    /**
+     * Checks the changed files of a checkout. Files whose content was already checked
+     * under the same rule set take their findings from the {@link FindingsCache}.
+     *
+     * @param repoRoot     root of the checked-out repository
+     * @param changedFiles paths relative to {@code repoRoot}, as listed by {@code git diff}
+     */
+    public List<Finding> check(Path repoRoot, Collection<String> changedFiles) throws IOException, CheckstyleException {
+        Path configFile = Files.isRegularFile(repoRoot.resolve(REPO_CONFIG)) ? repoRoot.resolve(REPO_CONFIG) : defaultConfig;
+        byte[] configContent = Files.readAllBytes(configFile);
+        Path basedir = repoRoot.toAbsolutePath().normalize();
+        Configuration configuration = bind(loadConfiguration(configFile, configContent, sha256(configContent)),
+                configFile.toAbsolutePath().getParent().toString(), basedir);
+        String rulesetHash = rulesetHash(configContent, configuration);
+
+        List<Finding> findings = new ArrayList<>();
+        Map<String, String> relativePaths = new HashMap<>();
+        Map<String, String> cacheKeys = new HashMap<>();
+        List<File> files = new ArrayList<>();
+        for (String changed : changedFiles) {
+            Path file = basedir.resolve(changed).normalize();
+            // Deleted files still show up in the diff
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            if (findingsCache.isEnabled()) {
+                byte[] content = Files.readAllBytes(file);
+                String key = FindingsCache.key(content, changed, rulesetHash, CHECKSTYLE_VERSION);
+                List<FindingsCache.CachedFinding> cached = findingsCache.get(key, content.length);
+                if (cached != null) {
+                    cached.forEach(c -> findings.add(toFinding(c, file, changed)));
+                    continue;
+                }
+                cacheKeys.put(changed, key);
+            }
+            files.add(file.toFile());
+            // Checker reports file names relative to its basedir
+            relativePaths.put(basedir.relativize(file).toString(), changed);
+        }
+        int cachedFiles = changedFiles.size() - files.size();
+        if (files.isEmpty()) {
+            return findings;
+        }
+
+        FindingCollector collector = new FindingCollector(relativePaths);
+        Checker checker = new Checker();
+        try {
+            checker.setModuleClassLoader(Checker.class.getClassLoader());
+            checker.setBasedir(basedir.toString());
+            checker.setHaltOnException(false);
+            checker.configure(configuration);
+            checker.addListener(collector);
+            checker.process(files);
+        } finally {
+            checker.destroy();
+        }
+
+        cacheResults(cacheKeys, collector);
+        findings.addAll(collector.findings);
+        log.info("In-process Checkstyle checked {} file(s) with {} and found {} violation(s); {} other file(s) were cached or missing",
+                files.size(), configFile, collector.findings.size(), cachedFiles);
+        return findings;
+    }
+
+    private void cacheResults(Map<String, String> cacheKeys, FindingCollector collector) {
+        Map<String, List<FindingsCache.CachedFinding>> byFile = new HashMap<>();
+        cacheKeys.keySet().forEach(changed -> byFile.put(changed, new ArrayList<>()));
+        for (Finding finding : collector.findings) {
+            List<FindingsCache.CachedFinding> entry = byFile.get(finding.getRelativePath());
+            if (entry != null) {
+                entry.add(new FindingsCache.CachedFinding(finding.getLine(), finding.getColumn(),
+                        finding.getSeverity(), finding.getRule(), finding.getMessage(), finding.getSource()));
+            }
+        }
+        byFile.forEach((changed, entry) -> {
+            // A file Checkstyle could not process has no trustworthy result to reuse
+            if (!collector.failedFiles.contains(changed)) {
+                findingsCache.put(cacheKeys.get(changed), entry);
+            }
+        });
+    }
+
+    private static Finding toFinding(FindingsCache.CachedFinding cached, Path file, String relativePath) {
+        return Finding.builder()
+                .file(file.getFileName().toString())
+                .relativePath(relativePath)
+                .line(cached.line())
+                .column(cached.column())
+                .severity(cached.severity())
+                .rule(cached.rule())
+                .message(cached.message())
+                .source(cached.source())
+                .build();
+    }
+
+    private Configuration loadConfiguration(Path configFile, byte[] content, String hash) throws CheckstyleException {
+        Configuration cached = configurations.get(hash);
+        if (cached != null) {
+            return cached;
+        }
+
+        Properties properties = new Properties();
+        properties.putAll(System.getProperties());
+        // Expanded per run by bind(), so the cached copy is not tied to one checkout
+        properties.setProperty("config_loc", CONFIG_LOC);
+        InputSource source = new InputSource(new ByteArrayInputStream(content));
+        source.setSystemId(configFile.toUri().toString());
+        Configuration configuration = ConfigurationLoader.loadConfiguration(source,
+                new PropertiesExpander(properties),
+                ConfigurationLoader.IgnoredModulesOptions.OMIT,
+                ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE);
+        log.info("Loaded Checkstyle configuration {} ({})", configFile, hash.substring(0, 12));
+        Configuration existing = configurations.putIfAbsent(hash, configuration);
+        return existing != null ? existing : configuration;
+    }
+
+    /**
+     * Copies a cached configuration for one run, replacing {@code ${config_loc}} with
+     * {@code configDir} and resolving relative suppression files against {@code repoRoot}.
+     */
+    private static Configuration bind(Configuration template, String configDir, Path repoRoot) throws CheckstyleException {
+        DefaultConfiguration bound = new DefaultConfiguration(template.getName(), ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE);
+        boolean suppressionFilter = SUPPRESSION_FILTERS.contains(template.getName());
+        for (String name : template.getPropertyNames()) {
+            String value = template.getProperty(name).replace(CONFIG_LOC, configDir);
+            if (suppressionFilter && "file".equals(name) && isRelativePath(value)) {
+                value = repoRoot.resolve(value).normalize().toString();
+            }
+            bound.addProperty(name, value);
+        }
+        template.getMessages().forEach(bound::addMessage);
+        for (Configuration child : template.getChildren()) {
+            bound.addChild(bind(child, configDir, repoRoot));
+        }
+        return bound;
+    }
+
+    /**
+     * Hashes the configuration together with the content of every file a module property
+     * points to, e.g. suppressions or import control, so that editing those files changes
+     * the hash. Only the content is hashed, not the checkout-specific location.
+     */
+    private static String rulesetHash(byte[] configContent, Configuration configuration)
+            throws CheckstyleException, IOException {
+        MessageDigest digest = sha256Digest();
+        digest.update(configContent);
+        hashReferencedFiles(configuration, digest);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashReferencedFiles(Configuration configuration, MessageDigest digest)
+            throws CheckstyleException, IOException {
+        for (String name : configuration.getPropertyNames()) {
+            Path file = existingFile(configuration.getProperty(name));
+            if (file != null) {
+                digest.update((configuration.getName() + "." + name + "\0").getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+        }
+        for (Configuration child : configuration.getChildren()) {
+            hashReferencedFiles(child, digest);
+        }
+    }
+
+    private static Path existingFile(String value) {
+        if (!value.startsWith("/")) {
+            return null;
+        }
+        try {
+            Path path = Paths.get(value);
+            return Files.isRegularFile(path) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /** Relative file paths, as opposed to absolute ones, URLs and classpath resources. */
+    private static boolean isRelativePath(String value) {
+        return !value.isBlank() && !value.contains(":") && !value.startsWith("/") && !Paths.get(value).isAbsolute();
+    }
+
+    private static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(sha256Digest().digest(content));
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class FindingCollector implements AuditListener {
+        private final Map<String, String> relativePaths;
+        private final List<Finding> findings = new ArrayList<>();
+        private final Set<String> failedFiles = new HashSet<>();
+
+        private FindingCollector(Map<String, String> relativePaths) {
+            this.relativePaths = relativePaths;
+        }
+
+        @Override
+        public void addError(AuditEvent event) {
+            String fileName = event.getFileName();
+            if (PROCESSING_FAILED.equals(event.getViolation().getKey())) {
+                // Reported instead of addException when the checker does not halt on exceptions
+                String message = event.getMessage();
+                int firstLine = message.indexOf('\n');
+                log.warn("Checkstyle could not process {}: {}", fileName, firstLine < 0 ? message : message.substring(0, firstLine));
+                failedFiles.add(relativePaths.getOrDefault(fileName, fileName));
+                return;
+            }
+            String source = event.getSourceName();
+            findings.add(Finding.builder()
+                    .file(Paths.get(fileName).getFileName().toString())
+                    .relativePath(relativePaths.getOrDefault(fileName, fileName))
+                    .line(event.getLine())
+                    .column(event.getColumn())
+                    .severity(event.getSeverityLevel().getName().toLowerCase(Locale.ROOT))
+                    .rule(source.substring(source.lastIndexOf('.') + 1))
+                    .message(event.getMessage())
+                    .source(source)
+                    .build());
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable) {
+            log.warn("Checkstyle could not process {}: {}", event.getFileName(), throwable.getMessage());
+            failedFiles.add(relativePaths.getOrDefault(event.getFileName(), event.getFileName()));
+        }
+
+        @Override
+        public void auditStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event) {
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.pr.review_assistant.analysis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Local Maven repository shared by every analysis job, so dependencies and plugins are
+ * downloaded once instead of per PR. Concurrent builds coordinate through Maven
+ * resolver's file locks (the script passes the named-lock settings). Jobs hold a read lock
+ * while their build runs, and eviction only happens when no build is running.
+ * Eviction removes whole artifact versions, least recently used first, once the
+ * repository grows past {@code analysis.maven-cache.max-size}.
+ *
+ * <p>The repository is sized without the lock, so a sweep that finds it within budget
+ * never holds up a build. Only an over-budget sweep takes the lock, which is fair: while
+ * eviction waits, new builds queue behind it instead of keeping the read lock held
+ * forever on a busy service. It waits at most {@code analysis.maven-cache.eviction-wait},
+ * which is kept short because builds stall for that long; a sweep that gives up is
+ * counted in {@code review.maven.cache.evictions.skipped} and tried again next time.
+ */
+@Slf4j
+@Component
+public class MavenRepositoryCache {
+
+    /** File the analysis script writes with the number and size of artifacts it downloaded. */
+    public static final String DOWNLOADS_REPORT = "maven-downloads.txt";
+
+    private final boolean enabled;
+    private final Path root;
+    private final long maxSizeBytes;
+    private final Duration evictionWait;
+    private final ReadWriteLock buildLock = new ReentrantReadWriteLock(true);
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary downloadedBytes;
+    private final Counter skippedEvictions;
+
+    public MavenRepositoryCache(@Value("${analysis.maven-cache.enabled:true}") boolean enabled,
+                                @Value("${analysis.maven-cache.root:maven-repository}") String root,
+                                @Value("${analysis.maven-cache.max-size:10GB}") DataSize maxSize,
+                                @Value("${analysis.maven-cache.eviction-wait:PT5S}") Duration evictionWait,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.maxSizeBytes = maxSize.toBytes();
+        this.evictionWait = evictionWait;
+        this.hits = Counter.builder("review.maven.cache.jobs")
+                .description("Analysis builds by whether they had to download artifacts")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("review.maven.cache.jobs")
+                .description("Analysis builds by whether they had to download artifacts")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.downloadedBytes = DistributionSummary.builder("review.maven.cache.downloaded")
+                .description("Artifact bytes an analysis build downloaded into the shared repository")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.skippedEvictions = Counter.builder("review.maven.cache.evictions.skipped")
+                .description("Eviction sweeps given up because builds kept the shared repository busy")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks a build as running against the shared repository. Must be paired with
+     * {@link #release()} on the same thread.
+     */
+    public Path acquire() throws IOException {
+        Files.createDirectories(root);
+        buildLock.readLock().lock();
+        return root;
+    }
+
+    public void release() {
+        buildLock.readLock().unlock();
+    }
+
+    /**
+     * Records cache hit or miss for a job from the report the script left in its artifacts.
+     */
+    public void recordJob(Path artifactsDir) {
+        Path report = artifactsDir.resolve(DOWNLOADS_REPORT);
+        if (!Files.exists(report)) {
+            return;
+        }
+        try {
+            String[] parts = Files.readString(report).trim().split("\\s+");
+            long artifacts = Long.parseLong(parts[0]);
+            long bytes = parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+            if (artifacts == 0) {
+                hits.increment();
+            } else {
+                misses.increment();
+                log.info("Build downloaded {} artifact(s), {} bytes, into the shared Maven repository", artifacts, bytes);
+            }
+            downloadedBytes.record(bytes);
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Could not read Maven download report {}: {}", report, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.maven-cache.sweep-interval:PT30M}")
+    public void enforceBudget() {
+        if (!enabled || !Files.isDirectory(root)) {
+            return;
+        }
+        List<ArtifactVersion> versions = listArtifactVersions();
+        long total = versions.stream().mapToLong(ArtifactVersion::sizeBytes).sum();
+        if (total <= maxSizeBytes) {
+            return;
+        }
+        try {
+            // A timed tryLock honours fairness, so builds that start meanwhile wait behind it
+            if (!buildLock.writeLock().tryLock(evictionWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                skippedEvictions.increment();
+                log.warn("Skipping Maven repository eviction; builds kept the shared repository busy for {}", evictionWait);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            // Builds may have used some versions since the scan; the order is still close enough
+            versions.sort(Comparator.comparingLong(ArtifactVersion::lastUsedMillis));
+            int evicted = 0;
+            for (ArtifactVersion version : versions) {
+                if (total <= maxSizeBytes) {
+                    break;
+                }
+                if (deleteFiles(version.path())) {
+                    total -= version.sizeBytes();
+                    evicted++;
+                }
+            }
+            log.info("Evicted {} artifact version(s) from the shared Maven repository; {} bytes remain", evicted, total);
+        } finally {
+            buildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * An artifact version is a directory holding files, e.g. {@code org/foo/bar/1.2.3}. Its
+     * last use is the newest access or modification time of those files.
+     */
+    private List<ArtifactVersion> listArtifactVersions() {
+        List<ArtifactVersion> versions = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                private final List<long[]> stack = new ArrayList<>();
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    stack.add(new long[] {0, 0, 0});
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    long[] current = stack.get(stack.size() - 1);
+                    current[0] += attrs.size();
+                    current[1] = Math.max(current[1], Math.max(attrs.lastAccessTime().toMillis(),
+                            attrs.lastModifiedTime().toMillis()));
+                    current[2]++;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    long[] current = stack.remove(stack.size() - 1);
+                    if (current[2] > 0 && !dir.equals(root)) {
+                        versions.add(new ArtifactVersion(dir, current[0], current[1]));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not scan shared Maven repository {}: {}", root, e.getMessage());
+        }
+        return versions;
+    }
+
+    /**
+     * Deletes the files directly inside {@code dir}, and the directory itself once empty.
+     * Nested directories are separate entries and are left alone.
+     */
+    private static boolean deleteFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not evict {} from the shared Maven repository: {}", dir, e.getMessage());
+            return false;
+        }
+        try (Stream<Path> remaining = Files.list(dir)) {
+            if (remaining.findAny().isEmpty()) {
+                Files.deleteIfExists(dir);
+            }
+        } catch (IOException e) {
+            log.debug("Could not remove emptied directory {}: {}", dir, e.getMessage());
+        }
+        return true;
+    }
+
+    private record ArtifactVersion(Path path, long sizeBytes, long lastUsedMillis) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.pr.review_assistant.analysis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-repository timings and counts for each review, so a slow review can be traced to
+ * the stage that took the time. Stages run by the analysis script (checkout, setup,
+ * compile, checkstyle, spotbugs, diff) are read from the timings file it writes; the
+ * stages in this JVM (checkstyle, parse, explain, format, publish) are timed directly.
+ * All timers share the name {@code review.pipeline.stage} and differ by the
+ * {@code stage} tag.
+ */
+@Slf4j
+@Component
+public class PipelineMetrics {
+
+    /** File the analysis script appends {@code <stage> <millis>} lines to. */
+    public static final String STAGE_TIMINGS = "stage-timings.txt";
+
+    private final MeterRegistry meterRegistry;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordStage(String repo, String stage, long nanos) {
+        Timer.builder("review.pipeline.stage")
+                .description("Time spent in one stage of a review")
+                .tags("repo", repo, "stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the stages the analysis script reported. A missing or partly written file
+     * only loses those timings.
+     */
+    public void recordScriptStages(String repo, Path stageTimings) {
+        if (!Files.exists(stageTimings)) {
+            return;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(stageTimings);
+        } catch (IOException e) {
+            log.debug("Could not read stage timings {}: {}", stageTimings, e.getMessage());
+            return;
+        }
+        for (String line : lines) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                recordStage(repo, parts[0], TimeUnit.MILLISECONDS.toNanos(Long.parseLong(parts[1])));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed stage timing '{}'", line);
+            }
+        }
+    }
+
+    /**
+     * Records how a review ended: {@code success}, {@code failed} or {@code cancelled}.
+     */
+    public void recordOutcome(String repo, String outcome) {
+        Counter.builder("review.pipeline.jobs")
+                .description("Reviews by how they ended")
+                .tags("repo", repo, "outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordFindings(String repo, int findings) {
+        DistributionSummary.builder("review.pipeline.findings")
+                .description("Findings published per review")
+                .tag("repo", repo)
+                .register(meterRegistry)
+                .record(findings);
+    }
+
+    /** Time from the webhook being received until the review was published. */
+    public void recordEndToEnd(String repo, long receivedAtMillis) {
+        Timer.builder("review.pipeline.end_to_end")
+                .description("Time from webhook receipt to the published review")
+                .tag("repo", repo)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - receivedAtMillis)));
+    }
+}
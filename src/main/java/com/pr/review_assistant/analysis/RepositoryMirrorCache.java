@@ -0,0 +1,188 @@
+package com.pr.review_assistant.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps one bare mirror per repository between jobs so the analysis script only has to
+ * fetch new commits and add a worktree, instead of cloning from scratch. The script
+ * serializes fetches on the same mirror with a lock file; this class tracks which
+ * mirrors are leased by running jobs and evicts whole repositories, least recently used
+ * first, once the cache grows past {@code analysis.mirror.max-size}.
+ */
+@Slf4j
+@Component
+public class RepositoryMirrorCache {
+
+    static final String LAST_USED_MARKER = ".last-used";
+
+    private final boolean enabled;
+    private final Path root;
+    private final long maxSizeBytes;
+    private final Map<Path, Integer> leases = new HashMap<>();
+
+    public RepositoryMirrorCache(@Value("${analysis.mirror.enabled:true}") boolean enabled,
+                                 @Value("${analysis.mirror.root:mirrors}") String root,
+                                 @Value("${analysis.mirror.max-size:20GB}") DataSize maxSize) {
+        this.enabled = enabled;
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.maxSizeBytes = maxSize.toBytes();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reserves the mirror for {@code repo} so it cannot be evicted while a job uses it.
+     * The directory may not exist yet; the analysis script creates it on first use.
+     */
+    public Path acquire(String repo) throws IOException {
+        Path mirror = mirrorPath(repo);
+        synchronized (leases) {
+            Files.createDirectories(mirror);
+            leases.merge(mirror, 1, Integer::sum);
+        }
+        Path marker = mirror.resolve(LAST_USED_MARKER);
+        if (!Files.exists(marker)) {
+            Files.createFile(marker);
+        }
+        Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+        return mirror;
+    }
+
+    public void release(Path mirror) {
+        synchronized (leases) {
+            leases.computeIfPresent(mirror, (path, count) -> count > 1 ? count - 1 : null);
+        }
+        enforceBudget();
+    }
+
+    /**
+     * Evicts idle mirrors, least recently used first, until the cache fits the budget.
+     */
+    synchronized void enforceBudget() {
+        List<MirrorEntry> mirrors = listMirrors();
+        long total = mirrors.stream().mapToLong(MirrorEntry::sizeBytes).sum();
+        if (total <= maxSizeBytes) {
+            return;
+        }
+        mirrors.sort(Comparator.comparing(MirrorEntry::lastUsed));
+        for (MirrorEntry entry : mirrors) {
+            if (total <= maxSizeBytes) {
+                break;
+            }
+            synchronized (leases) {
+                if (leases.containsKey(entry.path())) {
+                    continue;
+                }
+                // Deleting under the lease lock keeps acquire() from handing out a half-deleted mirror
+                if (deleteRecursively(entry.path())) {
+                    total -= entry.sizeBytes();
+                    log.info("Evicted repository mirror {} ({} bytes) to stay within the {} byte budget",
+                            entry.path(), entry.sizeBytes(), maxSizeBytes);
+                }
+            }
+        }
+        if (total > maxSizeBytes) {
+            log.warn("Repository mirror cache is {} bytes, over its {} byte budget, but all remaining mirrors are in use",
+                    total, maxSizeBytes);
+        }
+    }
+
+    Path mirrorPath(String repo) {
+        String[] parts = repo.split("/", 2);
+        String owner = sanitize(parts[0]);
+        String name = parts.length > 1 ? sanitize(parts[1]) : "_";
+        return root.resolve(owner).resolve(name + ".git");
+    }
+
+    private List<MirrorEntry> listMirrors() {
+        List<MirrorEntry> mirrors = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return mirrors;
+        }
+        try (Stream<Path> owners = Files.list(root)) {
+            for (Path owner : (Iterable<Path>) owners::iterator) {
+                if (!Files.isDirectory(owner)) {
+                    continue;
+                }
+                try (Stream<Path> repos = Files.list(owner)) {
+                    repos.filter(Files::isDirectory)
+                         .forEach(repo -> mirrors.add(new MirrorEntry(repo, sizeOf(repo), lastUsed(repo))));
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not scan repository mirror cache {}: {}", root, e.getMessage());
+        }
+        return mirrors;
+    }
+
+    private static FileTime lastUsed(Path mirror) {
+        try {
+            Path marker = mirror.resolve(LAST_USED_MARKER);
+            return Files.getLastModifiedTime(Files.exists(marker) ? marker : mirror);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long sizeOf(Path dir) {
+        long[] size = {0};
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    size[0] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.debug("Could not size {}: {}", dir, e.getMessage());
+        }
+        return size[0];
+    }
+
+    private static boolean deleteRecursively(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not evict repository mirror {}: {}", dir, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String sanitize(String segment) {
+        String safe = segment.replaceAll("[^A-Za-z0-9._-]", "_");
+        return safe.isEmpty() || safe.chars().allMatch(c -> c == '.') ? "_" : safe;
+    }
+
+    private record MirrorEntry(Path path, long sizeBytes, FileTime lastUsed) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.pr.review_assistant.analysis;
+
+/**
+ * What {@link RuleExplainer} knows about a rule. There is one instance per rule, shared by
+ * every finding of that rule, so a large report doesn't carry a copy of the same text per
+ * finding.
+ */
+public record RuleDescriptor(String category, Impact impact, String explanation, String suggestion) {
+}
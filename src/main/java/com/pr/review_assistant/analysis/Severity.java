@@ -0,0 +1,39 @@
+package com.pr.review_assistant.analysis;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Locale;
+
+/**
+ * Severity of a finding, most severe first. Written as its lower-case label, the way
+ * Checkstyle reports it.
+ */
+public enum Severity {
+    ERROR,
+    WARNING,
+    INFO;
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * Parses a tool's severity label. Anything that is not an error or a warning, such as
+     * Checkstyle's {@code ignore}, is reported as info.
+     */
+    @JsonCreator
+    public static Severity of(String label) {
+        if (label == null) {
+            return INFO;
+        }
+        switch (label.toLowerCase(Locale.ROOT)) {
+            case "error": return ERROR;
+            case "warning": return WARNING;
+            default: return INFO;
+        }
+    }
+
+    @JsonValue
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,159 @@
+package com.pr.review_assistant.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Streams a SpotBugs {@code spotbugsXml.xml} report with StAX, emitting one finding per
+ * {@code <BugInstance>} located in a changed file. The reported line is the bug's own
+ * source line, falling back to its method and then its class.
+ */
+@Slf4j
+@Component
+public class SpotBugsResultParser {
+
+    /**
+     * Streams findings for changed files to {@code sink}. An empty changed-file list
+     * keeps every file.
+     *
+     * @return the number of findings emitted
+     */
+    public int parseSpotBugsResults(Path xmlFilePath, ChangedFiles changedFiles, Consumer<Finding> sink) {
+        if (!Files.exists(xmlFilePath)) {
+            log.debug("SpotBugs results file not found: {}", xmlFilePath);
+            return 0;
+        }
+
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(xmlFilePath))) {
+            XMLStreamReader reader = XmlReports.open(in);
+            try {
+                BugInstance bug = null;
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String element = reader.getLocalName();
+                        if ("BugInstance".equals(element)) {
+                            bug = new BugInstance(depth,
+                                    XmlReports.attribute(reader, "type"),
+                                    XmlReports.attribute(reader, "category"),
+                                    XmlReports.parseInt(reader.getAttributeValue(null, "priority"), 3));
+                        } else if (bug != null) {
+                            if ("SourceLine".equals(element)) {
+                                bug.addSourceLine(reader, depth);
+                            } else if ("Method".equals(element) && depth == bug.depth + 1) {
+                                bug.inMethod = true;
+                            } else if ("Class".equals(element) && depth == bug.depth + 1) {
+                                bug.inClass = true;
+                            } else if ("LongMessage".equals(element)) {
+                                bug.longMessage = reader.getElementText();
+                                depth--;
+                            } else if ("ShortMessage".equals(element)) {
+                                bug.shortMessage = reader.getElementText();
+                                depth--;
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (bug != null) {
+                            String element = reader.getLocalName();
+                            if ("BugInstance".equals(element)) {
+                                Finding finding = bug.toFinding(changedFiles);
+                                if (finding != null) {
+                                    sink.accept(finding);
+                                    count++;
+                                }
+                                bug = null;
+                            } else if (depth == bug.depth + 1) {
+                                bug.inMethod = false;
+                                bug.inClass = false;
+                            }
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            log.info("Parsed {} findings from SpotBugs results", count);
+        } catch (Exception e) {
+            log.error("Error parsing SpotBugs results: {}", e.getMessage(), e);
+        }
+        return count;
+    }
+
+    private static Severity severityFor(int priority) {
+        if (priority <= 1) return Severity.ERROR;
+        if (priority == 2) return Severity.WARNING;
+        return Severity.INFO;
+    }
+
+    private static final class BugInstance {
+        private final int depth;
+        private final String type;
+        private final String category;
+        private final int priority;
+        private boolean inMethod;
+        private boolean inClass;
+        private String shortMessage = "";
+        private String longMessage = "";
+        private SourceLine bugLine;
+        private SourceLine methodLine;
+        private SourceLine classLine;
+
+        private BugInstance(int depth, String type, String category, int priority) {
+            this.depth = depth;
+            this.type = type;
+            this.category = category;
+            this.priority = priority;
+        }
+
+        private void addSourceLine(XMLStreamReader reader, int elementDepth) {
+            SourceLine line = new SourceLine(
+                    XmlReports.attribute(reader, "sourcefile"),
+                    XmlReports.attribute(reader, "sourcepath"),
+                    XmlReports.parseInt(reader.getAttributeValue(null, "start"), 0));
+            if (elementDepth == depth + 1) {
+                if (bugLine == null) bugLine = line;
+            } else if (inMethod) {
+                if (methodLine == null) methodLine = line;
+            } else if (inClass) {
+                if (classLine == null) classLine = line;
+            }
+        }
+
+        private Finding toFinding(ChangedFiles changedFiles) {
+            SourceLine line = bugLine != null ? bugLine : methodLine != null ? methodLine : classLine;
+            if (line == null || line.sourcePath().isEmpty()) {
+                return null;
+            }
+            String relative = changedFiles.isEmpty() ? line.sourcePath() : changedFiles.match(line.sourcePath());
+            if (relative == null) {
+                return null;
+            }
+            String message = !longMessage.isEmpty() ? longMessage : !shortMessage.isEmpty() ? shortMessage : type;
+            return Finding.builder()
+                    .file(line.sourceFile())
+                    .relativePath(relative)
+                    .line(line.start())
+                    .column(0)
+                    .severity(severityFor(priority))
+                    .rule(type)
+                    .message(message)
+                    .source("spotbugs." + category + "." + type)
+                    .build();
+        }
+    }
+
+    private record SourceLine(String sourceFile, String sourcePath, int start) {
+    }
+}
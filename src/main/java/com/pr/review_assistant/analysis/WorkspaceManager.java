@@ -0,0 +1,138 @@
+package com.pr.review_assistant.analysis;
+
+import com.pr.review_assistant.database.ReviewJob;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Creates one workspace per review job and removes it again according to the
+ * retention policy. Successful workspaces are kept for {@code analysis.workspace.retention}
+ * and failed ones for {@code analysis.workspace.failed-retention}; a zero duration deletes
+ * the workspace as soon as the job finishes. The repository checkout is always deleted
+ * on release, only the artifacts are retained.
+ */
+@Slf4j
+@Component
+public class WorkspaceManager {
+
+    static final String EXPIRES_AT_MARKER = ".expires-at";
+
+    private final Path root;
+    private final Duration retention;
+    private final Duration failedRetention;
+
+    public WorkspaceManager(@Value("${analysis.workspace.root:workspaces}") String root,
+                            @Value("${analysis.workspace.retention:PT0S}") Duration retention,
+                            @Value("${analysis.workspace.failed-retention:PT1H}") Duration failedRetention) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.retention = retention;
+        this.failedRetention = failedRetention;
+    }
+
+    /**
+     * Workspaces without an expiry marker belonged to jobs that were running when the
+     * previous process died, so nothing will ever release them.
+     */
+    @PostConstruct
+    public void removeOrphanedWorkspaces() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(Files::isDirectory)
+                .filter(dir -> !Files.exists(dir.resolve(EXPIRES_AT_MARKER)))
+                .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not scan workspace root {}: {}", root, e.getMessage());
+        }
+    }
+
+    public AnalysisWorkspace create(ReviewJob job) throws IOException {
+        Files.createDirectories(root);
+        String prefix = String.format("%s-pr%d-%s-",
+                job.getRepo().replaceAll("[^A-Za-z0-9._-]", "_"),
+                job.getPrNumber(),
+                abbreviate(job.getHeadSha()));
+        Path dir = Files.createTempDirectory(root, prefix);
+        AnalysisWorkspace workspace = new AnalysisWorkspace(job, dir);
+        Files.createDirectories(workspace.getArtifactsDir());
+        log.debug("Created workspace {} for PR #{} on {}", dir, job.getPrNumber(), job.getRepo());
+        return workspace;
+    }
+
+    public void release(AnalysisWorkspace workspace, boolean succeeded) {
+        Duration keepFor = succeeded ? retention : failedRetention;
+        deleteQuietly(workspace.getCheckoutDir());
+        if (keepFor.isZero() || keepFor.isNegative()) {
+            deleteQuietly(workspace.getRoot());
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + keepFor.toMillis();
+        try {
+            Files.writeString(workspace.getRoot().resolve(EXPIRES_AT_MARKER), Long.toString(expiresAt));
+            log.info("Keeping workspace {} for {}", workspace.getRoot(), keepFor);
+        } catch (IOException e) {
+            log.warn("Could not mark workspace {} for retention, deleting it: {}", workspace.getRoot(), e.getMessage());
+            deleteQuietly(workspace.getRoot());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.workspace.sweep-interval:PT10M}")
+    public void sweepExpiredWorkspaces() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(dir -> isExpired(dir, now)).forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not sweep workspace root {}: {}", root, e.getMessage());
+        }
+    }
+
+    private boolean isExpired(Path dir, long now) {
+        Path marker = dir.resolve(EXPIRES_AT_MARKER);
+        if (!Files.exists(marker)) {
+            return false;
+        }
+        try {
+            return Long.parseLong(Files.readString(marker).trim()) <= now;
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Unreadable expiry marker in {}, treating as expired", dir);
+            return true;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.debug("Could not delete {}: {}", p, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String abbreviate(String sha) {
+        if (sha == null) return "unknown";
+        return sha.length() > 7 ? sha.substring(0, 7) : sha;
+    }
+}
@@ -4,6 +4,8 @@ import com.pr.review_assistant.service.GithubWebhookService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/webhook/github")
 public class GithubWebhookController {
@@ -14,11 +16,17 @@ public class GithubWebhookController {
         this.webhookService = webhookService;
     }
 
+    /**
+     * The body is handed over as a stream so the payload is parsed as it arrives instead
+     * of being read into a String first.
+     */
     @PostMapping
     public ResponseEntity<String> handleWebhook(
             @RequestHeader("X-GitHub-Event") String event,
-            @RequestBody String payload) {
+            @RequestHeader(value = "X-GitHub-Delivery", required = false) String deliveryId,
+            @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+            InputStream payload) {
         
-        return webhookService.processWebhook(event, payload);
+        return webhookService.processWebhook(event, deliveryId, signature, payload);
     }
 }
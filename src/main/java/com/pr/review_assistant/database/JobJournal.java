@@ -0,0 +1,511 @@
+package com.pr.review_assistant.database;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, file-backed log of the review job lifecycle, so queued and running jobs
+ * survive a restart or crash. Every enqueue, start and completion is appended as a
+ * checksummed record to the current segment file under {@code jobs.durable.dir}.
+ *
+ * <p>Appends only write to the OS page cache, so they are cheap enough for the webhook
+ * thread and already survive a process crash. A background thread fsyncs the segment
+ * every {@code jobs.durable.flush-interval}, batching the writes of that interval into
+ * one sync. When a segment grows past {@code jobs.durable.segment-size}, the same thread
+ * rewrites the jobs that are still open into a fresh segment and deletes the old ones, so
+ * an append never does more than a buffered write under the lock.
+ *
+ * <p>On startup the segments are replayed. Jobs that were enqueued or running, but not
+ * finished, are handed back to the queue. A job that has already been started
+ * {@code jobs.durable.max-attempts} times without finishing is dropped, so one job that
+ * crashes the process cannot keep it in a restart loop.
+ *
+ * <p>Only the local {@code JobQueue} uses the journal; in Kafka mode the broker holds the
+ * jobs and this bean is not created.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jobs.dispatch.mode", havingValue = "local", matchIfMissing = true)
+public class JobJournal {
+
+    static final String SEGMENT_PREFIX = "jobs-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte ENQUEUE = 1;
+    private static final byte START = 2;
+    private static final byte DONE = 3;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long segmentSizeBytes;
+    private final Duration flushInterval;
+    private final int maxAttempts;
+    private final Timer flushTimer;
+
+    private final Object lock = new Object();
+    private final Map<String, OpenJob> open = new LinkedHashMap<>();
+    private FileChannel segment;
+    private long segmentIndex;
+    private boolean dirty;
+    private boolean compactionDue;
+    /** Records appended while a compaction is writing its snapshot; {@code null} otherwise. */
+    private List<byte[]> carryOver;
+    private ScheduledExecutorService flusher;
+
+    public JobJournal(@Value("${jobs.durable.enabled:true}") boolean enabled,
+                      @Value("${jobs.durable.dir:job-journal}") String dir,
+                      @Value("${jobs.durable.segment-size:16MB}") DataSize segmentSize,
+                      @Value("${jobs.durable.flush-interval:PT0.05S}") Duration flushInterval,
+                      @Value("${jobs.durable.max-attempts:3}") int maxAttempts,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.segmentSizeBytes = segmentSize.toBytes();
+        this.flushInterval = flushInterval;
+        this.maxAttempts = maxAttempts;
+        this.flushTimer = Timer.builder("review.journal.flush")
+                .description("Time spent syncing a batch of job journal writes to disk")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replays the journal, compacts it into a fresh segment and starts the flusher.
+     *
+     * @return jobs that were enqueued or running but never finished, in enqueue order
+     */
+    public List<ReviewJob> open() throws IOException {
+        if (!enabled) {
+            return List.of();
+        }
+        synchronized (lock) {
+            Files.createDirectories(dir);
+            List<Path> segments = listSegments();
+            for (Path path : segments) {
+                replay(path);
+            }
+            if (!segments.isEmpty()) {
+                segmentIndex = indexOf(segments.get(segments.size() - 1));
+            }
+
+            List<ReviewJob> recovered = new ArrayList<>();
+            for (Iterator<OpenJob> it = open.values().iterator(); it.hasNext(); ) {
+                OpenJob job = it.next();
+                if (job.attempts >= maxAttempts) {
+                    log.warn("Dropping job for PR #{} on {} at {}; it was started {} time(s) without finishing",
+                            job.job.getPrNumber(), job.job.getRepo(), job.job.getHeadSha(), job.attempts);
+                    it.remove();
+                } else {
+                    recovered.add(job.job);
+                }
+            }
+            compact();
+            if (!recovered.isEmpty()) {
+                log.info("Recovered {} unfinished review job(s) from {}", recovered.size(), dir);
+            }
+
+            long intervalMillis = Math.max(1, flushInterval.toMillis());
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "job-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            return recovered;
+        }
+    }
+
+    public void enqueued(ReviewJob job) {
+        append(ENQUEUE, job);
+    }
+
+    public void started(ReviewJob job) {
+        append(START, job);
+    }
+
+    public void finished(ReviewJob job) {
+        append(DONE, job);
+    }
+
+    /** Stops the flusher and syncs what is left. */
+    public void close() {
+        if (flusher == null) {
+            return;
+        }
+        // Let a running flush or compaction finish; interrupting it would close the segment
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (lock) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Could not close job journal segment: {}", e.getMessage());
+            }
+            segment = null;
+        }
+    }
+
+    private void append(byte type, ReviewJob job) {
+        if (!enabled) {
+            return;
+        }
+        byte[] record = encode(type, job);
+        synchronized (lock) {
+            apply(type, job);
+            if (segment == null) {
+                return;
+            }
+            try {
+                write(segment, record);
+                dirty = true;
+                if (carryOver != null) {
+                    carryOver.add(record);
+                }
+                if (segment.size() > segmentSizeBytes) {
+                    compactionDue = true;
+                }
+            } catch (IOException e) {
+                // The in-memory queue keeps working; only durability for this record is lost
+                log.error("Could not append to job journal in {}: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    /** Syncs the writes made since the last flush, then compacts if a segment outgrew its size. */
+    void flush() {
+        sync();
+        compactInBackground();
+    }
+
+    /** Runs outside the lock so appends never wait on the disk. */
+    private void sync() {
+        FileChannel channel;
+        synchronized (lock) {
+            if (!dirty || segment == null) {
+                return;
+            }
+            channel = segment;
+            dirty = false;
+        }
+        long start = System.nanoTime();
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // close() gave up waiting for the flusher and closed the segment
+        } catch (IOException e) {
+            log.error("Could not sync job journal in {}: {}", dir, e.getMessage());
+            synchronized (lock) {
+                dirty = true;
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /** Applies a record to the set of open jobs. Used for both live appends and replay. */
+    private void apply(byte type, ReviewJob job) {
+        String key = job.pullRequestKey();
+        OpenJob current = open.get(key);
+        switch (type) {
+            case ENQUEUE -> {
+                if (current != null) {
+                    // A newer push replaces the pending commit but keeps its place. The same
+                    // commit enqueued again, e.g. on recovery or a redelivered webhook, keeps
+                    // its attempts so that it still counts towards max-attempts.
+                    if (!current.job.getHeadSha().equals(job.getHeadSha())) {
+                        current.attempts = 0;
+                    }
+                    current.job = job;
+                } else {
+                    open.put(key, new OpenJob(job));
+                }
+            }
+            case START -> {
+                if (current != null && current.job.getHeadSha().equals(job.getHeadSha())) {
+                    current.attempts++;
+                }
+            }
+            case DONE -> {
+                if (current != null && current.job.getHeadSha().equals(job.getHeadSha())) {
+                    open.remove(key);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Writes the open jobs into a new segment, syncs it, and only then deletes the older
+     * segments, so a crash at any point leaves a complete journal behind. Used on startup,
+     * before anything else can append.
+     */
+    private void compact() throws IOException {
+        long nextIndex = segmentIndex + 1;
+        FileChannel channel = createSegment(nextIndex, snapshot());
+        FileChannel previous = segment;
+        segment = channel;
+        segmentIndex = nextIndex;
+        dirty = false;
+        if (previous != null) {
+            previous.close();
+        }
+        deleteSegmentsBefore(nextIndex);
+        log.debug("Compacted job journal into segment {} with {} open job(s)", nextIndex, open.size());
+    }
+
+    /**
+     * Compacts a segment that outgrew {@code jobs.durable.segment-size}, on the flusher
+     * thread. The open jobs are snapshotted under the lock, but written and synced outside
+     * it while appends carry on into the old segment. The records appended meanwhile are
+     * then copied into the new segment before it takes over, and the older segments are
+     * deleted once that copy is synced too.
+     */
+    private void compactInBackground() {
+        List<byte[]> records;
+        long nextIndex;
+        synchronized (lock) {
+            if (!compactionDue || segment == null) {
+                return;
+            }
+            compactionDue = false;
+            records = snapshot();
+            nextIndex = segmentIndex + 1;
+            carryOver = new ArrayList<>();
+        }
+
+        FileChannel channel = null;
+        FileChannel previous;
+        int openJobs;
+        try {
+            channel = createSegment(nextIndex, records);
+            synchronized (lock) {
+                for (byte[] record : carryOver) {
+                    write(channel, record);
+                }
+                carryOver = null;
+                previous = segment;
+                segment = channel;
+                segmentIndex = nextIndex;
+                dirty = true;
+                openJobs = open.size();
+            }
+            previous.close();
+            // The old segments may hold synced copies of the carried-over records
+            channel.force(false);
+            deleteSegmentsBefore(nextIndex);
+            log.debug("Compacted job journal into segment {} with {} open job(s)", nextIndex, openJobs);
+        } catch (IOException e) {
+            log.error("Could not compact job journal in {}: {}", dir, e.getMessage());
+            synchronized (lock) {
+                if (carryOver != null) {
+                    // The new segment never took over; keep appending to the old one
+                    carryOver = null;
+                    closeQuietly(channel);
+                    deleteQuietly(segmentPath(nextIndex));
+                }
+            }
+        }
+    }
+
+    /** Records that recreate the current set of open jobs. Called under the lock. */
+    private List<byte[]> snapshot() {
+        List<byte[]> records = new ArrayList<>();
+        for (OpenJob job : open.values()) {
+            records.add(encode(ENQUEUE, job.job));
+            for (int i = 0; i < job.attempts; i++) {
+                records.add(encode(START, job.job));
+            }
+        }
+        return records;
+    }
+
+    private FileChannel createSegment(long index, List<byte[]> records) throws IOException {
+        Path path = segmentPath(index);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            for (byte[] record : records) {
+                write(channel, record);
+            }
+            channel.force(true);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private void deleteSegmentsBefore(long index) throws IOException {
+        for (Path old : listSegments()) {
+            if (indexOf(old) < index) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close job journal segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Could not delete unused job journal segment {}: {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    private void replay(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (buffer.remaining() > 0) {
+            int start = buffer.position();
+            try {
+                int length = buffer.getInt();
+                long checksum = buffer.getInt() & 0xFFFFFFFFL;
+                if (length <= 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    throw new BufferUnderflowException();
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte type = record.get();
+                apply(type, decode(record));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // A record torn by a crash mid-write; nothing after it was acknowledged as synced
+                log.warn("Ignoring {} byte(s) of incomplete records at the end of {}", buffer.limit() - start, path.getFileName());
+                return;
+            }
+        }
+    }
+
+    private static byte[] encode(byte type, ReviewJob job) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            writeString(out, job.getRepo());
+            writeString(out, job.getHeadSha());
+            out.writeInt(job.getPrNumber());
+            writeString(out, job.getBaseSha());
+            writeString(out, job.getAction());
+            out.writeInt(job.getChangedLines());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        return record.array();
+    }
+
+    private static ReviewJob decode(ByteBuffer record) {
+        String repo = readString(record);
+        String headSha = readString(record);
+        int prNumber = record.getInt();
+        String baseSha = readString(record);
+        if (!record.hasRemaining()) {
+            // Written before jobs carried scheduling hints
+            return new ReviewJob(repo, headSha, prNumber, baseSha);
+        }
+        String action = readString(record);
+        return new ReviewJob(repo, headSha, prNumber, baseSha, action.isEmpty() ? null : action, record.getInt());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = Objects.toString(value, "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void write(FileChannel channel, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class OpenJob {
+        private ReviewJob job;
+        private int attempts;
+
+        private OpenJob(ReviewJob job) {
+            this.job = job;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.pr.review_assistant.database;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 @Data
 public class ReviewJob {
@@ -8,4 +9,34 @@ public class ReviewJob {
     private final String headSha;
     private final int prNumber;
     private final String baseSha;
+
+    /** Webhook action that produced the job, e.g. {@code opened}; only used for scheduling. */
+    @EqualsAndHashCode.Exclude
+    private final String action;
+
+    /** Lines added plus deleted in the PR, or -1 when unknown; only used for scheduling. */
+    @EqualsAndHashCode.Exclude
+    private final int changedLines;
+
+    /** When the webhook was received, for end-to-end latency; not part of the job's identity. */
+    @EqualsAndHashCode.Exclude
+    private long receivedAtMillis = System.currentTimeMillis();
+
+    public ReviewJob(String repo, String headSha, int prNumber, String baseSha) {
+        this(repo, headSha, prNumber, baseSha, null, -1);
+    }
+
+    public ReviewJob(String repo, String headSha, int prNumber, String baseSha, String action, int changedLines) {
+        this.repo = repo;
+        this.headSha = headSha;
+        this.prNumber = prNumber;
+        this.baseSha = baseSha;
+        this.action = action;
+        this.changedLines = changedLines;
+    }
+
+    /** Identifies the pull request this job reviews, independent of the commit. */
+    public String pullRequestKey() {
+        return repo + "#" + prNumber;
+    }
 }
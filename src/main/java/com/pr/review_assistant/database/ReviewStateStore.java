@@ -0,0 +1,55 @@
+package com.pr.review_assistant.database;
+
+import com.pr.review_assistant.analysis.Finding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers, per pull request, the last head SHA that was reviewed and the findings it
+ * produced, grouped by file. A later push only needs to re-analyze the files that changed
+ * since that head; the findings of the other files are taken from here. The store keeps
+ * the most recently reviewed {@code review.state.max-entries} pull requests in memory.
+ */
+@Component
+public class ReviewStateStore {
+
+    private final Map<String, ReviewState> states;
+
+    public ReviewStateStore(@Value("${review.state.max-entries:5000}") int maxEntries) {
+        this.states = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReviewState> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /** The last reviewed state of the job's pull request, or {@code null}. */
+    public ReviewState find(ReviewJob job) {
+        return states.get(job.pullRequestKey());
+    }
+
+    /** Records the findings of a completed review of {@code job}'s head. */
+    public void save(ReviewJob job, List<Finding> findings) {
+        Map<String, List<Finding>> byFile = new LinkedHashMap<>();
+        for (Finding finding : findings) {
+            if (finding.getRelativePath() != null && !finding.getRelativePath().isEmpty()) {
+                byFile.computeIfAbsent(finding.getRelativePath(), path -> new ArrayList<>()).add(finding);
+            }
+        }
+        states.put(job.pullRequestKey(), new ReviewState(job.getHeadSha(), job.getBaseSha(), byFile));
+    }
+
+    public record ReviewState(String headSha, String baseSha, Map<String, List<Finding>> findingsByFile) {
+
+        public List<Finding> findingsFor(String path) {
+            return findingsByFile.getOrDefault(path, List.of());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.pr.review_assistant.jobs;
+
+import com.pr.review_assistant.database.ReviewJob;
+
+/**
+ * Hands a review job accepted from a webhook to whatever runs analyses. The
+ * {@code jobs.dispatch.mode} property picks the implementation: {@code local} (the
+ * default) queues the job in this process, {@code kafka} publishes it so any instance of
+ * the service can pick it up.
+ */
+public interface JobDispatcher {
+
+    void dispatch(ReviewJob job);
+}
@@ -1,36 +1,410 @@
 package com.pr.review_assistant.jobs;
 
 import com.pr.review_assistant.analysis.AnalysisRunner;
+import com.pr.review_assistant.analysis.CancellationToken;
+import com.pr.review_assistant.database.JobJournal;
 import com.pr.review_assistant.database.ReviewJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Hands review jobs to a fixed pool of worker threads. A job starts as soon as it is
+ * enqueued and a worker is free, and at most {@code jobs.workers.max-concurrency}
+ * analyses run at the same time.
+ *
+ * <p>Jobs are keyed by pull request. A push that arrives while an older commit of the
+ * same PR is still waiting replaces that job in place, a job for the head that is already
+ * being analyzed is dropped, and a push that arrives while an older commit is being
+ * analyzed cancels the running analysis.
+ *
+ * <p>Repositories are served by weighted fair queuing: each repository has its own queue
+ * and a virtual clock that advances by {@code 1 / weight} for every job it starts, and a
+ * free worker takes the next job of the ready repository with the lowest clock. One busy
+ * repository therefore cannot starve the others, and at most
+ * {@code jobs.workers.max-per-repo} of its jobs run at once. Within a repository, newly
+ * opened PRs go first, then diffs of at most {@code jobs.scheduling.small-diff-lines}
+ * lines, then everything else, each lane in arrival order. Picking a job is O(log n).
+ *
+ * <p>Every enqueue, start and completion is recorded in the {@link JobJournal}, and jobs
+ * that were waiting or running when the service stopped are enqueued again on startup.
+ */
 @Slf4j
 @Component
-public class JobQueue {
-    private final BlockingQueue<ReviewJob> queue = new LinkedBlockingQueue<>();
+@ConditionalOnProperty(name = "jobs.dispatch.mode", havingValue = "local", matchIfMissing = true)
+public class JobQueue implements JobDispatcher {
+    private static final String ACTION_OPENED = "opened";
+    private static final int LANE_OPENED = 0;
+    private static final int LANE_SMALL_DIFF = 1;
+    private static final int LANE_DEFAULT = 2;
+
+    private final Object lock = new Object();
+    private final Map<String, QueuedJob> pending = new HashMap<>();
+    private final Map<String, RunningJob> running = new HashMap<>();
+    private final Map<String, RepoQueue> repos = new HashMap<>();
+    // Repositories with waiting jobs and a free slot, lowest virtual time first
+    private final PriorityQueue<RepoQueue> ready = new PriorityQueue<>(
+            Comparator.comparingDouble(RepoQueue::virtualTime).thenComparingLong(RepoQueue::readySeq));
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
     private final AnalysisRunner analysisRunner;
+    private final JobJournal journal;
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrency;
+    private final int maxPerRepo;
+    private final int smallDiffLines;
+    private final Map<String, Double> weights;
+    private final Counter coalescedCounter;
+    private final Counter cancelledCounter;
+    private double virtualClock;
+    private long sequence;
+    private ExecutorService workers;
 
-    public JobQueue(AnalysisRunner analysisRunner) {
+    public JobQueue(AnalysisRunner analysisRunner, JobJournal journal, MeterRegistry meterRegistry,
+                    @Value("${jobs.workers.max-concurrency:4}") int maxConcurrency,
+                    @Value("${jobs.workers.max-per-repo:2}") int maxPerRepo,
+                    @Value("${jobs.scheduling.small-diff-lines:200}") int smallDiffLines,
+                    @Value("${jobs.scheduling.weights:}") String weights) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("jobs.workers.max-concurrency must be at least 1");
+        }
+        if (maxPerRepo < 1) {
+            throw new IllegalArgumentException("jobs.workers.max-per-repo must be at least 1");
+        }
         this.analysisRunner = analysisRunner;
+        this.journal = journal;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrency = maxConcurrency;
+        this.maxPerRepo = maxPerRepo;
+        this.smallDiffLines = smallDiffLines;
+        this.weights = parseWeights(weights);
+        this.coalescedCounter = Counter.builder("review.queue.coalesced")
+                .description("Review jobs merged into a pending or running job of the same PR")
+                .register(meterRegistry);
+        this.cancelledCounter = Counter.builder("review.jobs.cancelled")
+                .description("Running analyses cancelled by a newer push to the same PR")
+                .register(meterRegistry);
+        Gauge.builder("review.queue.depth", queued, AtomicInteger::get)
+                .description("Review jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("review.queue.in_flight", inFlight, AtomicInteger::get)
+                .description("Review jobs currently being analyzed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Parses {@code owner/repo:weight} pairs separated by commas. Repositories that are
+     * not listed have weight 1.
+     */
+    static Map<String, Double> parseWeights(String spec) {
+        Map<String, Double> parsed = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+        for (String entry : spec.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            double weight = colon < 0 ? Double.NaN : Double.parseDouble(entry.substring(colon + 1).trim());
+            if (!(weight > 0)) {
+                throw new IllegalArgumentException("Invalid jobs.scheduling.weights entry: " + entry.trim());
+            }
+            parsed.put(entry.substring(0, colon).trim(), weight);
+        }
+        return parsed;
+    }
+
+    @PostConstruct
+    public void start() {
+        List<ReviewJob> recovered;
+        try {
+            recovered = journal.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the job journal", e);
+        }
+        synchronized (lock) {
+            recovered.forEach(this::admit);
+        }
+        workers = Executors.newFixedThreadPool(maxConcurrency, workerThreadFactory());
+        for (int i = 0; i < maxConcurrency; i++) {
+            workers.execute(this::workLoop);
+        }
+        log.info("Started {} review worker(s)", maxConcurrency);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (workers == null) {
+            return;
+        }
+        workers.shutdownNow();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Review workers did not terminate within 30s; {} job(s) still in flight", inFlight.get());
+        }
+        journal.close();
+    }
+
+    @Override
+    public void dispatch(ReviewJob job) {
+        enqueue(job);
     }
 
     public void enqueue(ReviewJob job) {
-        queue.add(job);
-        log.info("Enqueued job for PR #{} on {}. Queue size: {}", 
-                job.getPrNumber(), job.getRepo(), queue.size());
+        synchronized (lock) {
+            // Journal under the lock so the log order matches the order jobs are admitted
+            journal.enqueued(job);
+            if (!admit(job)) {
+                return;
+            }
+        }
+        log.info("Enqueued job for PR #{} on {}. Queue size: {}",
+                job.getPrNumber(), job.getRepo(), queued.get());
+    }
+
+    /**
+     * Adds a job to the pending set, coalescing with a waiting job of the same PR and
+     * cancelling a running analysis of an older commit. A job for the head that is already
+     * running is dropped. Must hold {@link #lock}.
+     *
+     * @return {@code false} if the job replaced one that was already waiting or was dropped
+     */
+    private boolean admit(ReviewJob job) {
+        String key = job.pullRequestKey();
+        RunningJob active = running.get(key);
+        QueuedJob waiting = pending.get(key);
+        if (active != null && active.job().getHeadSha().equals(job.getHeadSha())) {
+            if (waiting == null) {
+                // A redelivery or another event for the head that is already being analyzed
+                coalescedCounter.increment();
+                log.info("Dropped job for PR #{} on {}; head {} is already being analyzed",
+                        job.getPrNumber(), job.getRepo(), job.getHeadSha());
+                return false;
+            }
+        } else if (active != null) {
+            log.info("Cancelling analysis of PR #{} on {} at {}; superseded by {}",
+                    job.getPrNumber(), job.getRepo(), active.job().getHeadSha(), job.getHeadSha());
+            active.cancellation().cancel();
+            cancelledCounter.increment();
+        }
+
+        RepoQueue repo = repos.computeIfAbsent(job.getRepo(), this::newRepoQueue);
+        int lane = lane(job);
+        if (waiting != null) {
+            // Keep the original queue position and wait time, only the commit changes
+            waiting.job = job;
+            if (lane < waiting.lane) {
+                repo.jobs.remove(waiting);
+                waiting.lane = lane;
+                repo.jobs.add(waiting);
+            }
+            coalescedCounter.increment();
+            log.info("Replaced pending job for PR #{} on {} with head {}",
+                    job.getPrNumber(), job.getRepo(), job.getHeadSha());
+            return false;
+        }
+        QueuedJob entry = new QueuedJob(job, repo, lane, sequence++, System.nanoTime());
+        pending.put(key, entry);
+        repo.jobs.add(entry);
+        queued.incrementAndGet();
+        markReady(repo);
+        lock.notify();
+        return true;
+    }
+
+    private int lane(ReviewJob job) {
+        if (ACTION_OPENED.equals(job.getAction())) {
+            return LANE_OPENED;
+        }
+        int changedLines = job.getChangedLines();
+        return changedLines >= 0 && changedLines <= smallDiffLines ? LANE_SMALL_DIFF : LANE_DEFAULT;
+    }
+
+    private RepoQueue newRepoQueue(String repo) {
+        Timer waitTimer = Timer.builder("review.queue.wait")
+                .description("Time a review job spent queued before a worker picked it up")
+                .tag("repo", repo)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return new RepoQueue(repo, weights.getOrDefault(repo, 1.0), waitTimer);
+    }
+
+    /**
+     * Puts a repository on the ready heap if it has waiting jobs and a free slot. An idle
+     * repository starts at the current virtual time, so it gets no credit for the time it
+     * had nothing queued. Must hold {@link #lock}.
+     */
+    private void markReady(RepoQueue repo) {
+        if (repo.onReadyHeap || repo.jobs.isEmpty() || repo.running >= maxPerRepo) {
+            return;
+        }
+        repo.virtualTime = Math.max(repo.virtualTime, virtualClock);
+        repo.readySeq = sequence++;
+        repo.onReadyHeap = true;
+        ready.add(repo);
+    }
+
+    /**
+     * Takes the next job of the ready repository with the lowest virtual time, blocking
+     * until one is available. Must hold {@link #lock}.
+     */
+    private QueuedJob next() throws InterruptedException {
+        while (ready.isEmpty()) {
+            lock.wait();
+        }
+        RepoQueue repo = ready.poll();
+        repo.onReadyHeap = false;
+        QueuedJob entry = repo.jobs.poll();
+        virtualClock = repo.virtualTime;
+        repo.virtualTime += 1.0 / repo.weight;
+        repo.running++;
+        pending.remove(entry.job.pullRequestKey());
+        queued.decrementAndGet();
+        markReady(repo);
+        if (!ready.isEmpty()) {
+            // Pass the wake-up on in case several jobs became runnable at once
+            lock.notify();
+        }
+        return entry;
+    }
+
+    /** Releases the repository slot of a finished job. Must hold {@link #lock}. */
+    private void release(RepoQueue repo) {
+        repo.running--;
+        if (repo.jobs.isEmpty() && repo.running == 0) {
+            // An idle repository restarts at the current virtual time anyway
+            repos.remove(repo.name);
+        } else if (!repo.onReadyHeap && !repo.jobs.isEmpty()) {
+            markReady(repo);
+            lock.notify();
+        }
     }
 
-    @Scheduled(fixedDelay = 5000)
-    public void processJobs() {
-        ReviewJob job = queue.poll();
-        if (job != null) {
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    private void workLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            QueuedJob entry;
+            ReviewJob job;
+            RepoQueue repo;
+            RunningJob active;
+            synchronized (lock) {
+                try {
+                    entry = next();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                job = entry.job;
+                repo = entry.repo;
+                active = new RunningJob(job, new CancellationToken());
+                running.put(job.pullRequestKey(), active);
+            }
+            journal.started(job);
+            try {
+                process(job, repo, entry.enqueuedAtNanos, active.cancellation());
+                // An analysis interrupted by shutdown stays open in the journal and reruns after restart
+                if (!Thread.currentThread().isInterrupted()) {
+                    journal.finished(job);
+                }
+            } finally {
+                synchronized (lock) {
+                    running.remove(job.pullRequestKey(), active);
+                    release(repo);
+                }
+            }
+        }
+    }
+
+    private void process(ReviewJob job, RepoQueue repo, long enqueuedAtNanos, CancellationToken cancellation) {
+        repo.waitTimer.record(System.nanoTime() - enqueuedAtNanos, TimeUnit.NANOSECONDS);
+        inFlight.incrementAndGet();
+        try {
             log.info("Processing job for PR #{} on {}", job.getPrNumber(), job.getRepo());
-            analysisRunner.run(job);
+            analysisRunner.run(job, cancellation);
+        } catch (RuntimeException e) {
+            // Keep the worker alive; AnalysisRunner already logs its own failures
+            log.error("Unexpected failure processing PR #{} on {}: {}",
+                    job.getPrNumber(), job.getRepo(), e.getMessage(), e);
+        } finally {
+            inFlight.decrementAndGet();
         }
     }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "review-worker-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+
+    private static final class QueuedJob {
+        private ReviewJob job;
+        private int lane;
+        private final RepoQueue repo;
+        private final long seq;
+        private final long enqueuedAtNanos;
+
+        private QueuedJob(ReviewJob job, RepoQueue repo, int lane, long seq, long enqueuedAtNanos) {
+            this.job = job;
+            this.repo = repo;
+            this.lane = lane;
+            this.seq = seq;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+
+    private static final class RepoQueue {
+        private final String name;
+        private final double weight;
+        private final Timer waitTimer;
+        private final PriorityQueue<QueuedJob> jobs = new PriorityQueue<>(
+                Comparator.comparingInt((QueuedJob job) -> job.lane).thenComparingLong(job -> job.seq));
+        private double virtualTime;
+        private long readySeq;
+        private int running;
+        private boolean onReadyHeap;
+
+        private RepoQueue(String name, double weight, Timer waitTimer) {
+            this.name = name;
+            this.weight = weight;
+            this.waitTimer = waitTimer;
+        }
+
+        private double virtualTime() {
+            return virtualTime;
+        }
+
+        private long readySeq() {
+            return readySeq;
+        }
+    }
+
+    private record RunningJob(ReviewJob job, CancellationToken cancellation) {
+    }
 }
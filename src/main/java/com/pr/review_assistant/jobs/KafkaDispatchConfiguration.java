@@ -0,0 +1,60 @@
+package com.pr.review_assistant.jobs;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Kafka setup for {@code jobs.dispatch.mode=kafka}. The topic is created with
+ * {@code jobs.kafka.partitions} partitions, which caps how many analyses can run in
+ * parallel across all instances. Listener offsets are committed manually, after each job.
+ * Since a listener does not poll while it analyzes, {@code jobs.kafka.max-poll-interval}
+ * must exceed {@code analysis.timeout.total}, or the broker would take the partition away
+ * from a slow but healthy analysis and hand the job to another instance.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jobs.dispatch.mode", havingValue = "kafka")
+public class KafkaDispatchConfiguration {
+
+    static final String CONTAINER_FACTORY = "reviewJobListenerContainerFactory";
+
+    @Bean
+    public NewTopic reviewJobsTopic(@Value("${jobs.kafka.topic:review-jobs}") String topic,
+                                    @Value("${jobs.kafka.partitions:12}") int partitions,
+                                    @Value("${jobs.kafka.replicas:1}") int replicas) {
+        return TopicBuilder.name(topic).partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean(CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, String> reviewJobListenerContainerFactory(
+            KafkaProperties kafkaProperties,
+            @Value("${jobs.kafka.max-poll-interval:PT45M}") Duration maxPollInterval,
+            @Value("${analysis.timeout.total:PT30M}") Duration analysisTimeout) {
+        if (maxPollInterval.compareTo(analysisTimeout) <= 0) {
+            throw new IllegalStateException("jobs.kafka.max-poll-interval (" + maxPollInterval
+                    + ") must be longer than analysis.timeout.total (" + analysisTimeout + ")");
+        }
+        Map<String, Object> config = kafkaProperties.buildConsumerProperties(null);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Only one record per poll: an analysis can take minutes and must finish before the next poll
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
+        config.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, (int) maxPollInterval.toMillis());
+        config.putIfAbsent(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        return factory;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pr.review_assistant.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pr.review_assistant.database.ReviewJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes review jobs to the {@code jobs.kafka.topic} topic, keyed by pull request so
+ * all pushes to a pull request land on the same partition and are analyzed in order,
+ * while the pull requests of a busy repository spread over all partitions. The send
+ * is acknowledged by the broker before the webhook is answered, so an accepted event is
+ * never only in this process's memory.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jobs.dispatch.mode", havingValue = "kafka")
+public class KafkaJobDispatcher implements JobDispatcher {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+    private final Duration sendTimeout;
+
+    public KafkaJobDispatcher(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                              @Value("${jobs.kafka.topic:review-jobs}") String topic,
+                              @Value("${jobs.kafka.send-timeout:PT10S}") Duration sendTimeout) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Override
+    public void dispatch(ReviewJob job) {
+        try {
+            String payload = objectMapper.writeValueAsString(ReviewJobMessage.from(job));
+            kafkaTemplate.send(topic, job.pullRequestKey(), payload).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Published job for PR #{} on {} to {}", job.getPrNumber(), job.getRepo(), topic);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing review job", e);
+        } catch (JsonProcessingException | ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not publish review job to " + topic + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pr.review_assistant.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pr.review_assistant.analysis.AnalysisRunner;
+import com.pr.review_assistant.analysis.CancellationToken;
+import com.pr.review_assistant.database.ReviewJob;
+import com.pr.review_assistant.publisher.Publisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Consumes review jobs published by {@link KafkaJobDispatcher}. Each listener thread runs
+ * one analysis at a time, {@code jobs.kafka.concurrency} threads per instance, and the
+ * offset is committed only after the analysis has published its results. A job that was
+ * being analyzed when an instance died is therefore delivered again to another one.
+ *
+ * <p>Jobs are not coalesced on their way through Kafka, so a backlog of pushes to one
+ * pull request arrives as one record per push. Before analyzing, the worker asks GitHub
+ * for the pull request's current head and skips the job if it is for an older one; the
+ * record of the newer push is further along the same partition. If GitHub can't be
+ * asked, the job is analyzed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jobs.dispatch.mode", havingValue = "kafka")
+public class KafkaJobWorker {
+
+    private final AnalysisRunner analysisRunner;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Publisher publisher;
+    private final Counter malformed;
+    private final Counter superseded;
+
+    public KafkaJobWorker(AnalysisRunner analysisRunner, ObjectMapper objectMapper, Publisher publisher,
+                          MeterRegistry meterRegistry) {
+        this.analysisRunner = analysisRunner;
+        this.objectMapper = objectMapper;
+        this.publisher = publisher;
+        this.meterRegistry = meterRegistry;
+        this.malformed = Counter.builder("review.kafka.malformed")
+                .description("Review job messages that could not be read and were skipped")
+                .register(meterRegistry);
+        this.superseded = Counter.builder("review.kafka.superseded")
+                .description("Review jobs skipped because their pull request has moved on to a newer head")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "${jobs.kafka.topic:review-jobs}",
+                   groupId = "${jobs.kafka.group-id:review-workers}",
+                   concurrency = "${jobs.kafka.concurrency:4}",
+                   containerFactory = KafkaDispatchConfiguration.CONTAINER_FACTORY)
+    public void onJob(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        ReviewJob job;
+        try {
+            job = objectMapper.readValue(record.value(), ReviewJobMessage.class).toJob();
+        } catch (IOException e) {
+            log.error("Skipping unreadable review job at {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            malformed.increment();
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        // The record was produced while the webhook was being answered
+        job.setReceivedAtMillis(record.timestamp());
+        String currentHead = publisher.currentHeadSha(job);
+        if (currentHead != null && !currentHead.equals(job.getHeadSha())) {
+            log.info("Skipping job for PR #{} on {} at {}; the pull request is now at {}",
+                    job.getPrNumber(), job.getRepo(), job.getHeadSha(), currentHead);
+            superseded.increment();
+            acknowledgment.acknowledge();
+            return;
+        }
+        Timer.builder("review.queue.wait")
+                .description("Time a review job spent queued before a worker picked it up")
+                .tag("repo", job.getRepo())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - record.timestamp())));
+        log.info("Processing job for PR #{} on {} from partition {}", job.getPrNumber(), job.getRepo(), record.partition());
+        analysisRunner.run(job, new CancellationToken());
+        acknowledgment.acknowledge();
+    }
+}
@@ -0,0 +1,19 @@
+package com.pr.review_assistant.jobs;
+
+import com.pr.review_assistant.database.ReviewJob;
+
+/**
+ * Wire format of a {@link ReviewJob} on the Kafka topic. Kept separate from the job so the
+ * message stays a plain JSON object that Jackson can read back without a default
+ * constructor.
+ */
+record ReviewJobMessage(String repo, String headSha, int prNumber, String baseSha) {
+
+    static ReviewJobMessage from(ReviewJob job) {
+        return new ReviewJobMessage(job.getRepo(), job.getHeadSha(), job.getPrNumber(), job.getBaseSha());
+    }
+
+    ReviewJob toJob() {
+        return new ReviewJob(repo, headSha, prNumber, baseSha);
+    }
+}
@@ -0,0 +1,282 @@
+package com.pr.review_assistant.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client for the GitHub REST API. Requests go through a pooled keep-alive
+ * {@link HttpClient} with connect and read timeouts, and are paced by a token bucket per
+ * access token so one installation cannot starve another.
+ *
+ * <p>The bucket follows GitHub's response headers: it stops issuing requests when
+ * {@code X-RateLimit-Remaining} reaches zero until {@code X-RateLimit-Reset}. Rate-limit
+ * responses (429, or 403 with rate-limit headers) are retried with jittered exponential
+ * backoff, honouring {@code Retry-After} when GitHub sends it unless it asks for a longer
+ * wait than {@code github.client.backoff.max}. 5xx responses and I/O errors are only
+ * retried for idempotent methods: GitHub often creates the resource of a POST before the
+ * request fails, and retrying it would post duplicate comments and reviews.
+ */
+@Slf4j
+@Component
+public class GitHubClient {
+
+    private final RestTemplate restTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double bucketCapacity;
+    private final double refillPerSecond;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Timer bucketDelay;
+    private final Timer backoffDelay;
+
+    public GitHubClient(@Value("${github.client.connect-timeout:PT5S}") Duration connectTimeout,
+                        @Value("${github.client.read-timeout:PT30S}") Duration readTimeout,
+                        @Value("${github.client.max-attempts:4}") int maxAttempts,
+                        @Value("${github.client.backoff.initial:PT1S}") Duration initialBackoff,
+                        @Value("${github.client.backoff.max:PT30S}") Duration maxBackoff,
+                        @Value("${github.client.rate.capacity:20}") double bucketCapacity,
+                        @Value("${github.client.rate.per-second:1.0}") double refillPerSecond,
+                        MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.bucketCapacity = bucketCapacity;
+        this.refillPerSecond = refillPerSecond;
+        this.meterRegistry = meterRegistry;
+        this.bucketDelay = Timer.builder("review.github.throttle")
+                .description("Time GitHub requests waited before being sent")
+                .tag("reason", "rate_limit")
+                .register(meterRegistry);
+        this.backoffDelay = Timer.builder("review.github.throttle")
+                .description("Time GitHub requests waited before being sent")
+                .tag("reason", "retry")
+                .register(meterRegistry);
+    }
+
+    public ResponseEntity<String> get(String token, String url) {
+        return exchange(token, HttpMethod.GET, url, null);
+    }
+
+    public ResponseEntity<String> post(String token, String url, Object body) {
+        return exchange(token, HttpMethod.POST, url, body);
+    }
+
+    public ResponseEntity<String> patch(String token, String url, Object body) {
+        return exchange(token, HttpMethod.PATCH, url, body);
+    }
+
+    /**
+     * Sends a request, waiting for the token's bucket and retrying throttled or failed
+     * attempts.
+     *
+     * @throws HttpStatusCodeException when GitHub answers with an error that is not
+     *                                 retryable, or retries are exhausted
+     */
+    public ResponseEntity<String> exchange(String token, HttpMethod method, String url, Object body) {
+        TokenBucket bucket = buckets.computeIfAbsent(token, t -> new TokenBucket(bucketCapacity, refillPerSecond));
+        HttpEntity<Object> request = new HttpEntity<>(body, headers(token));
+        for (int attempt = 1; ; attempt++) {
+            pause(bucket.reserve(), bucketDelay);
+            long start = System.nanoTime();
+            try {
+                ResponseEntity<String> response = restTemplate.exchange(url, method, request, String.class);
+                requestTimed(method, Integer.toString(response.getStatusCode().value()), start);
+                bucket.update(response.getHeaders());
+                return response;
+            } catch (HttpStatusCodeException e) {
+                requestTimed(method, Integer.toString(e.getStatusCode().value()), start);
+                HttpHeaders headers = e.getResponseHeaders() != null ? e.getResponseHeaders() : new HttpHeaders();
+                bucket.update(headers);
+                if (attempt >= maxAttempts || !isRetryable(method, e.getStatusCode(), headers)) {
+                    throw e;
+                }
+                long delay = retryDelay(attempt, headers);
+                if (delay > maxBackoffNanos) {
+                    log.warn("GitHub {} {} returned {} with Retry-After {}; not waiting that long",
+                            method, url, e.getStatusCode().value(), headers.getFirst(HttpHeaders.RETRY_AFTER));
+                    throw e;
+                }
+                log.warn("GitHub {} {} returned {}, retrying in {} ms (attempt {}/{})",
+                        method, url, e.getStatusCode().value(), TimeUnit.NANOSECONDS.toMillis(delay), attempt, maxAttempts);
+                retried(Integer.toString(e.getStatusCode().value()));
+                pause(delay, backoffDelay);
+            } catch (ResourceAccessException e) {
+                requestTimed(method, "io", start);
+                if (attempt >= maxAttempts || !isIdempotent(method)) {
+                    throw e;
+                }
+                long delay = backoff(attempt);
+                log.warn("GitHub {} {} failed: {}, retrying in {} ms (attempt {}/{})",
+                        method, url, e.getMessage(), TimeUnit.NANOSECONDS.toMillis(delay), attempt, maxAttempts);
+                retried("io");
+                pause(delay, backoffDelay);
+            }
+        }
+    }
+
+    private static HttpHeaders headers(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.valueOf("application/vnd.github+json")));
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
+    /**
+     * 429 is always worth retrying, 5xx only for idempotent methods. A 403 is only retried
+     * when it is a primary or secondary rate limit; other 403s are permission errors that
+     * will not go away. Rate-limited requests were rejected before GitHub acted on them,
+     * so retrying them is safe for any method.
+     */
+    static boolean isRetryable(HttpMethod method, HttpStatusCode status, HttpHeaders headers) {
+        if (status.value() == 429) {
+            return true;
+        }
+        if (status.is5xxServerError()) {
+            return isIdempotent(method);
+        }
+        return status.value() == 403
+                && (headers.containsKey(HttpHeaders.RETRY_AFTER) || "0".equals(headers.getFirst("X-RateLimit-Remaining")));
+    }
+
+    /** POST creates a resource each time it is sent; everything else can safely be repeated. */
+    static boolean isIdempotent(HttpMethod method) {
+        return !HttpMethod.POST.equals(method);
+    }
+
+    /** The wait before the next attempt; may exceed the maximum backoff when {@code Retry-After} asks for it. */
+    private long retryDelay(int attempt, HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring non-numeric Retry-After {}", retryAfter);
+            }
+        }
+        // An exhausted primary limit is already handled by the bucket pausing until the reset
+        return "0".equals(headers.getFirst("X-RateLimit-Remaining")) ? 0 : backoff(attempt);
+    }
+
+    /** Full-jitter exponential backoff: a random delay up to {@code initial * 2^(attempt-1)}. */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /** Latency of one attempt, tagged with the HTTP status or {@code io} for transport errors. */
+    private void requestTimed(HttpMethod method, String status, long startNanos) {
+        Timer.builder("review.github.requests")
+                .description("GitHub API calls by method and response status")
+                .tags("method", method.name(), "status", status)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void retried(String status) {
+        Counter.builder("review.github.retries")
+                .description("GitHub requests retried after a throttled or failed attempt")
+                .tag("status", status)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static void pause(long nanos, Timer timer) {
+        if (nanos <= 0) {
+            return;
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to call GitHub", e);
+        }
+    }
+
+    /**
+     * Token bucket that hands out reservations: a caller takes a token even when the bucket
+     * is empty and is told how long to wait for it, so concurrent callers queue fairly
+     * without holding the lock while they sleep.
+     */
+    static final class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefill;
+        private long pausedUntil;
+
+        TokenBucket(double capacity, double refillPerSecond) {
+            this.capacity = Math.max(1, capacity);
+            this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = this.capacity;
+            this.lastRefill = System.nanoTime();
+            this.pausedUntil = lastRefill;
+        }
+
+        /** Takes a token and returns how many nanoseconds the caller must wait before using it. */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            refill(now);
+            tokens -= 1;
+            long wait = tokens >= 0 || refillPerNano <= 0 ? 0 : (long) Math.ceil(-tokens / refillPerNano);
+            return Math.max(wait, pausedUntil - now);
+        }
+
+        /** Aligns the bucket with the quota GitHub reports. */
+        synchronized void update(HttpHeaders headers) {
+            String remaining = headers.getFirst("X-RateLimit-Remaining");
+            if (remaining == null) {
+                return;
+            }
+            try {
+                long left = Long.parseLong(remaining.trim());
+                refill(System.nanoTime());
+                tokens = Math.min(tokens, left);
+                String reset = headers.getFirst("X-RateLimit-Reset");
+                if (left == 0 && reset != null) {
+                    long seconds = Long.parseLong(reset.trim()) - System.currentTimeMillis() / 1000;
+                    pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(seconds, 1)));
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed rate-limit headers: {}", e.getMessage());
+            }
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -9,15 +9,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 @Slf4j
 @Component
 public class Publisher {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    /** Hidden first line identifying the assistant's summary comment on a PR. */
+    static final String SUMMARY_MARKER = "<!-- pr-review-assistant:summary -->";
+
+    private static final int MAX_COMMENT_PAGES = 10;
+
+    private final GitHubClient gitHubClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, SummaryComment> summaryComments;
 
     @Value("${github.token}")
     private String githubToken;
@@ -25,6 +35,52 @@ public class Publisher {
     @Value("${github.api.url}")
     private String githubApiUrl;
 
+    /** Login the token posts as; looked up through {@code GET /user} when not set. */
+    @Value("${github.summary.author:}")
+    private String summaryAuthor;
+    private volatile String resolvedSummaryAuthor;
+
+    /** Upper bound on inline comments per analysis, across all reviews. */
+    @Value("${github.review.max-inline-comments:50}")
+    private int maxInlineComments;
+
+    @Value("${github.review.max-comments-per-review:50}")
+    private int maxCommentsPerReview;
+
+    /** Approximate request size at which comments spill over into another review. */
+    @Value("${github.review.max-payload-bytes:524288}")
+    private long maxReviewPayloadBytes;
+
+    public Publisher(GitHubClient gitHubClient,
+                     @Value("${github.summary.cache-size:10000}") int summaryCacheSize) {
+        this.gitHubClient = gitHubClient;
+        this.summaryComments = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SummaryComment> eldest) {
+                return size() > summaryCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Looks up the commit the pull request currently points to, so a job for an older
+     * push can be skipped. Returns {@code null} when GitHub can't be asked, in which case
+     * the caller should analyze the job anyway.
+     */
+    public String currentHeadSha(ReviewJob job) {
+        if ("test-token".equals(githubToken)) {
+            return null;
+        }
+        String url = String.format("%s/repos/%s/pulls/%d", githubApiUrl, job.getRepo(), job.getPrNumber());
+        try {
+            String sha = objectMapper.readTree(gitHubClient.get(githubToken, url).getBody()).path("head").path("sha").asText("");
+            return sha.isEmpty() ? null : sha;
+        } catch (Exception e) {
+            log.warn("Could not look up the head of PR #{} on {}: {}", job.getPrNumber(), job.getRepo(), e.getMessage());
+            return null;
+        }
+    }
+
     public void postResult(ReviewJob job, String formattedResults) {
         // Backward-compatible: only summary comment
         postResult(job, formattedResults, Collections.emptyList());
@@ -34,18 +90,22 @@ public class Publisher {
     public void postResult(ReviewJob job, String formattedResults, List<com.pr.review_assistant.analysis.Finding> findings) {
         log.info("Publishing results for PR #{} on {}", job.getPrNumber(), job.getRepo());
 
+        if ("test-token".equals(githubToken)) {
+            log.info("Test mode - would post comment and inline review");
+            return;
+        }
+        // 1) Post a summary comment in the conversation
         try {
-            if (!"test-token".equals(githubToken)) {
-                // 1) Post a summary comment in the conversation
-                postCommentToPR(job, formattedResults);
-                // 2) Post inline review comments on the Files changed tab
-                postInlineReviewComments(job, findings);
-            } else {
-                log.info("Test mode - would post comment and inline review");
-            }
-
+            postCommentToPR(job, formattedResults);
         } catch (Exception e) {
-            log.error("Failed to publish results for PR #{} on {}: {}",
+            log.error("Failed to publish summary for PR #{} on {}: {}",
+                    job.getPrNumber(), job.getRepo(), e.getMessage(), e);
+        }
+        // 2) Post inline review comments on the Files changed tab, even if the summary failed
+        try {
+            postInlineReviewComments(job, findings);
+        } catch (Exception e) {
+            log.error("Failed to publish inline comments for PR #{} on {}: {}",
                     job.getPrNumber(), job.getRepo(), e.getMessage(), e);
         }
     }
@@ -88,26 +148,57 @@ public class Publisher {
         return comment.toString();
     }
 
+    /**
+     * Creates or updates the PR's summary comment. Each PR has one summary comment, found
+     * through the remembered comment ID or, after a restart, through the hidden
+     * {@link #SUMMARY_MARKER} on a comment of our own. It is edited in place on later
+     * pushes, and not written at all when its content (ignoring the timestamped footer) is
+     * unchanged. If the edit is rejected, a new comment is posted instead.
+     */
     private void postCommentToPR(ReviewJob job, String commentBody) {
-        String url = String.format("%s/repos/%s/issues/%d/comments",
-                githubApiUrl, job.getRepo(), job.getPrNumber());
+        String body = SUMMARY_MARKER + "\n" + commentBody;
+        String hash = contentHash(body);
+        String key = job.pullRequestKey();
 
-        log.info("Posting summary comment to URL: {}", url);
-        log.info("Comment body length: {} characters", commentBody.length());
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(githubToken);
+        SummaryComment existing = summaryComments.get(key);
+        if (existing == null) {
+            existing = findSummaryComment(job);
+        }
+        if (existing != null && existing.contentHash().equals(hash)) {
+            log.info("Summary comment {} on PR #{} on {} is unchanged, skipping update", existing.id(), job.getPrNumber(), job.getRepo());
+            summaryComments.put(key, existing);
+            return;
+        }
 
         Map<String, String> requestBody = new HashMap<>();
-        requestBody.put("body", commentBody);
-
-        HttpEntity<Map<String, String>> request = new HttpEntity<>(requestBody, headers);
+        requestBody.put("body", body);
+        log.info("Comment body length: {} characters", body.length());
 
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            if (existing != null) {
+                String url = String.format("%s/repos/%s/issues/comments/%d", githubApiUrl, job.getRepo(), existing.id());
+                try {
+                    gitHubClient.patch(githubToken, url, requestBody);
+                    summaryComments.put(key, new SummaryComment(existing.id(), hash));
+                    log.info("Updated summary comment {} on PR #{} on {}", existing.id(), job.getPrNumber(), job.getRepo());
+                    return;
+                } catch (HttpClientErrorException e) {
+                    log.warn("Could not update summary comment {} on PR #{} ({}), posting a new one",
+                            existing.id(), job.getPrNumber(), e.getStatusCode().value());
+                    summaryComments.remove(key);
+                }
+            }
+
+            String url = String.format("%s/repos/%s/issues/%d/comments",
+                    githubApiUrl, job.getRepo(), job.getPrNumber());
+            log.info("Posting summary comment to URL: {}", url);
+            ResponseEntity<String> response = gitHubClient.post(githubToken, url, requestBody);
 
             if (response.getStatusCode().is2xxSuccessful()) {
+                long id = response.getBody() != null ? objectMapper.readTree(response.getBody()).path("id").asLong(0) : 0;
+                if (id > 0) {
+                    summaryComments.put(key, new SummaryComment(id, hash));
+                }
                 log.info("Successfully posted summary comment to PR #{} on {}", job.getPrNumber(), job.getRepo());
             } else {
                 log.warn("Unexpected response when posting summary comment: {}", response.getStatusCode());
@@ -115,11 +206,93 @@ public class Publisher {
 
         } catch (Exception e) {
             log.error("Failed to post summary comment to GitHub: {}", e.getMessage(), e);
-            throw e;
+            throw e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
         }
     }
 
+    /**
+     * Looks through the PR's conversation for a summary comment written before this
+     * process started. Only comments by the token's own account count, so a user quoting
+     * the marker doesn't get their comment overwritten.
+     */
+    private SummaryComment findSummaryComment(ReviewJob job) {
+        for (int page = 1; page <= MAX_COMMENT_PAGES; page++) {
+            String url = String.format("%s/repos/%s/issues/%d/comments?per_page=100&page=%d",
+                    githubApiUrl, job.getRepo(), job.getPrNumber(), page);
+            try {
+                JsonNode comments = objectMapper.readTree(gitHubClient.get(githubToken, url).getBody());
+                for (JsonNode comment : comments) {
+                    String body = comment.path("body").asText("");
+                    if (body.startsWith(SUMMARY_MARKER) && isOwnComment(comment)) {
+                        return new SummaryComment(comment.path("id").asLong(), contentHash(body));
+                    }
+                }
+                if (comments.size() < 100) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.warn("Could not look up existing summary comment on PR #{} on {}: {}", job.getPrNumber(), job.getRepo(), e.getMessage());
+                break;
+            }
+        }
+        return null;
+    }
+
+    private boolean isOwnComment(JsonNode comment) {
+        JsonNode user = comment.path("user");
+        String author = summaryAuthor();
+        if (author != null) {
+            return author.equalsIgnoreCase(user.path("login").asText());
+        }
+        // App installation tokens cannot read /user; the app posts as a bot account
+        return "Bot".equals(user.path("type").asText());
+    }
+
+    /** The login the token posts as, or {@code null} if GitHub won't say. */
+    private String summaryAuthor() {
+        if (summaryAuthor != null && !summaryAuthor.isBlank()) {
+            return summaryAuthor;
+        }
+        String resolved = resolvedSummaryAuthor;
+        if (resolved == null) {
+            try {
+                resolved = objectMapper.readTree(gitHubClient.get(githubToken, githubApiUrl + "/user").getBody())
+                        .path("login").asText("");
+            } catch (HttpClientErrorException e) {
+                log.info("Token cannot read its GitHub user ({}); treating bot comments as our own", e.getStatusCode().value());
+                resolved = "";
+            } catch (Exception e) {
+                log.warn("Could not look up the GitHub user of the token: {}", e.getMessage());
+                return null;
+            }
+            resolvedSummaryAuthor = resolved;
+        }
+        return resolved.isEmpty() ? null : resolved;
+    }
+
+    /** Hashes a summary without its footer, which carries the analysis timestamp. */
+    static String contentHash(String body) {
+        int footer = body.lastIndexOf("\n---\n");
+        String content = footer >= 0 ? body.substring(0, footer) : body;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record SummaryComment(long id, String contentHash) {
+    }
+
     // --- Inline review comments on Files changed ---
+
+    /**
+     * Submits inline comments as pull request reviews, so a PR gets one review (and one
+     * notification) instead of one request per comment. Findings beyond
+     * {@code github.review.max-comments-per-review} or {@code github.review.max-payload-bytes}
+     * are split across further reviews.
+     */
     private void postInlineReviewComments(ReviewJob job, List<Finding> findings) {
         try {
             if (findings == null || findings.isEmpty()) {
@@ -127,49 +300,119 @@ public class Publisher {
                 return;
             }
 
-            // GitHub endpoint for PR review comments (inline on files changed)
-            String commentsUrl = String.format("%s/repos/%s/pulls/%d/comments",
-                    githubApiUrl, job.getRepo(), job.getPrNumber());
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(githubToken);
-
-            int posted = 0;
-            int limit = Math.min(50, findings.size()); // Safety cap to avoid flooding
+            List<Map<String, Object>> comments = new ArrayList<>();
             for (Finding f : findings) {
-                if (posted >= limit) break;
+                if (comments.size() >= maxInlineComments) break; // Safety cap to avoid flooding
                 if (f.getRelativePath() == null || f.getRelativePath().isEmpty() || f.getLine() <= 0) continue;
 
-                Map<String, Object> body = new HashMap<>();
-                body.put("body", buildInlineBody(f));
-                body.put("commit_id", job.getHeadSha());
-                body.put("path", f.getRelativePath());
-                body.put("side", "RIGHT");
-                body.put("line", f.getLine());
-
-                HttpEntity<Map<String, Object>> req = new HttpEntity<>(body, headers);
-                try {
-                    ResponseEntity<String> resp = restTemplate.postForEntity(commentsUrl, req, String.class);
-                    if (resp.getStatusCode().is2xxSuccessful()) {
-                        posted++;
-                    } else {
-                        log.debug("Inline comment failed for {}:{} -> {} {}", f.getRelativePath(), f.getLine(), resp.getStatusCode(), resp.getBody());
-                    }
-                } catch (Exception ex) {
-                    log.debug("Inline comment exception for {}:{} -> {}", f.getRelativePath(), f.getLine(), ex.getMessage());
-                }
+                Map<String, Object> comment = new LinkedHashMap<>();
+                comment.put("path", f.getRelativePath());
+                comment.put("line", f.getLine());
+                comment.put("side", "RIGHT");
+                comment.put("body", buildInlineBody(f));
+                comments.add(comment);
+            }
+            if (comments.isEmpty()) {
+                log.info("No findings with a file and line to post inline");
+                return;
             }
 
-            log.info("Posted {} inline review comments", posted);
+            List<List<Map<String, Object>>> chunks = chunk(comments);
+            int posted = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                posted += postReview(job, chunks.get(i), i + 1, chunks.size());
+            }
+            log.info("Posted {} inline review comments in {} review(s)", posted, chunks.size());
         } catch (Exception e) {
             log.warn("Posting inline review failed: {}", e.getMessage());
         }
     }
 
-    private String buildInlineBody(Finding f) {
+    private List<List<Map<String, Object>>> chunk(List<Map<String, Object>> comments) {
+        List<List<Map<String, Object>>> chunks = new ArrayList<>();
+        List<Map<String, Object>> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (Map<String, Object> comment : comments) {
+            long size = estimateBytes(comment);
+            if (!current.isEmpty() && (current.size() >= maxCommentsPerReview || currentBytes + size > maxReviewPayloadBytes)) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(comment);
+            currentBytes += size;
+        }
+        chunks.add(current);
+        return chunks;
+    }
+
+    private static long estimateBytes(Map<String, Object> comment) {
+        // JSON escaping can only grow the text, so count UTF-8 bytes plus room for the keys
+        long bytes = 64;
+        for (Object value : comment.values()) {
+            bytes += String.valueOf(value).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Posts one review carrying {@code comments}. GitHub rejects the whole review with 422
+     * when any comment points outside the diff; those comments are then posted one by one
+     * so the valid ones still land.
+     */
+    private int postReview(ReviewJob job, List<Map<String, Object>> comments, int part, int parts) {
+        String reviewsUrl = String.format("%s/repos/%s/pulls/%d/reviews",
+                githubApiUrl, job.getRepo(), job.getPrNumber());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("commit_id", job.getHeadSha());
+        body.put("event", "COMMENT");
+        body.put("body", parts > 1
+                ? String.format("PR Review Assistant found issues on changed lines (part %d of %d).", part, parts)
+                : "PR Review Assistant found issues on changed lines.");
+        body.put("comments", comments);
+
+        try {
+            ResponseEntity<String> resp = gitHubClient.post(githubToken, reviewsUrl, body);
+            if (resp.getStatusCode().is2xxSuccessful()) {
+                return comments.size();
+            }
+            log.warn("Review submission failed for PR #{} -> {} {}", job.getPrNumber(), resp.getStatusCode(), resp.getBody());
+            return 0;
+        } catch (HttpClientErrorException.UnprocessableEntity ex) {
+            log.info("GitHub rejected review for PR #{} ({}), posting its {} comments individually",
+                    job.getPrNumber(), ex.getStatusText(), comments.size());
+            return postCommentsIndividually(job, comments);
+        } catch (Exception ex) {
+            log.warn("Review submission failed for PR #{}: {}", job.getPrNumber(), ex.getMessage());
+            return 0;
+        }
+    }
+
+    private int postCommentsIndividually(ReviewJob job, List<Map<String, Object>> comments) {
+        String commentsUrl = String.format("%s/repos/%s/pulls/%d/comments",
+                githubApiUrl, job.getRepo(), job.getPrNumber());
+        int posted = 0;
+        for (Map<String, Object> comment : comments) {
+            Map<String, Object> body = new LinkedHashMap<>(comment);
+            body.put("commit_id", job.getHeadSha());
+            try {
+                ResponseEntity<String> resp = gitHubClient.post(githubToken, commentsUrl, body);
+                if (resp.getStatusCode().is2xxSuccessful()) {
+                    posted++;
+                } else {
+                    log.warn("Inline comment failed for {}:{} -> {} {}", comment.get("path"), comment.get("line"), resp.getStatusCode(), resp.getBody());
+                }
+            } catch (Exception ex) {
+                log.warn("Inline comment exception for {}:{} -> {}", comment.get("path"), comment.get("line"), ex.getMessage());
+            }
+        }
+        return posted;
+    }
+
+    String buildInlineBody(Finding f) {
         StringBuilder sb = new StringBuilder();
-        sb.append(f.getSeverity().toUpperCase()).append(": ").append(f.getRule()).append("\n\n");
+        sb.append(f.getSeverity().name()).append(": ").append(f.getRule()).append("\n\n");
         sb.append(f.getMessage());
         if (f.getSuggestion() != null && !f.getSuggestion().isEmpty()) {
             sb.append("\n\nSuggestion: ").append(f.getSuggestion());
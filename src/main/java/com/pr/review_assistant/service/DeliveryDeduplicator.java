@@ -0,0 +1,72 @@
+package com.pr.review_assistant.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers recently accepted {@code X-GitHub-Delivery} IDs so that retried and redelivered
+ * webhooks are not analyzed twice. IDs expire after {@code github.webhook.dedup.ttl} and at
+ * most {@code github.webhook.dedup.max-entries} are kept, oldest evicted first.
+ */
+@Component
+public class DeliveryDeduplicator {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    // Insertion order is arrival order, so expired IDs are always at the head
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+
+    @Autowired
+    public DeliveryDeduplicator(@Value("${github.webhook.dedup.max-entries:10000}") int maxEntries,
+                                @Value("${github.webhook.dedup.ttl:PT1H}") Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    DeliveryDeduplicator(int maxEntries, Duration ttl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Records the delivery ID.
+     *
+     * @return false if the ID was already recorded and has not expired
+     */
+    public synchronized boolean markIfNew(String deliveryId) {
+        long now = clock.millis();
+        evictExpired(now);
+        if (seen.containsKey(deliveryId)) {
+            return false;
+        }
+        seen.put(deliveryId, now);
+        if (seen.size() > maxEntries) {
+            Iterator<String> oldest = seen.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        return true;
+    }
+
+    /**
+     * Forgets a delivery that could not be handled so GitHub's redelivery is accepted.
+     */
+    public synchronized void forget(String deliveryId) {
+        seen.remove(deliveryId);
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<String, Long>> entries = seen.entrySet().iterator();
+        while (entries.hasNext() && now - entries.next().getValue() >= ttlMillis) {
+            entries.remove();
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.pr.review_assistant.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pr.review_assistant.database.ReviewJob;
-import com.pr.review_assistant.jobs.JobQueue;
+import com.pr.review_assistant.jobs.JobDispatcher;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
 @Service
 @Slf4j
 public class GithubWebhookService {
@@ -17,11 +24,16 @@ public class GithubWebhookService {
     private static final String ACTION_SYNCHRONIZE = "synchronize";
 
     private final ObjectMapper objectMapper;
-    private final JobQueue jobQueue;
+    private final JobDispatcher jobDispatcher;
+    private final WebhookSignatureVerifier signatureVerifier;
+    private final DeliveryDeduplicator deliveryDeduplicator;
 
-    public GithubWebhookService(ObjectMapper objectMapper, JobQueue jobQueue) {
+    public GithubWebhookService(ObjectMapper objectMapper, JobDispatcher jobDispatcher,
+                                WebhookSignatureVerifier signatureVerifier, DeliveryDeduplicator deliveryDeduplicator) {
         this.objectMapper = objectMapper;
-        this.jobQueue = jobQueue;
+        this.jobDispatcher = jobDispatcher;
+        this.signatureVerifier = signatureVerifier;
+        this.deliveryDeduplicator = deliveryDeduplicator;
     }
 
     /**
@@ -32,30 +44,74 @@ public class GithubWebhookService {
      * @return ResponseEntity with appropriate status and message
      */
     public ResponseEntity<String> processWebhook(String event, String payload) {
-        log.info("Processing GitHub event: {}", event);
+        return processWebhook(event, null, null, new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Processes a GitHub webhook event straight from the request body. Only the fields
+     * needed for a review job are read with a streaming parser; the rest of the payload
+     * is skipped without building a tree. When signatures are verified, the body is read
+     * in full and checked before any of it is parsed, so an unsigned or forged body is
+     * answered with 401 whatever it contains. Before a job is dispatched the delivery ID
+     * is recorded, so repeated deliveries never reach the analysis.
+     *
+     * @param deliveryId the {@code X-GitHub-Delivery} header, may be null
+     * @param signature  the {@code X-Hub-Signature-256} header, may be null
+     * @return 202 once the job is handed to the dispatcher, 200 for ignored and duplicate
+     *         events, 401 for a missing or wrong signature
+     */
+    public ResponseEntity<String> processWebhook(String event, String deliveryId, String signature, InputStream payload) {
+        log.info("Processing GitHub event: {} (delivery {})", event, deliveryId);
 
         if (!isPullRequestEvent(event)) {
             log.debug("Ignoring non-PR event: {}", event);
             return ResponseEntity.ok("Ignored non-PR event");
         }
+        if (signatureVerifier.isEnabled() && signature == null) {
+            log.warn("Rejecting delivery {} without a signature", deliveryId);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing signature");
+        }
 
         try {
-            JsonNode json = objectMapper.readTree(payload);
-            String action = extractAction(json);
+            InputStream body = payload;
+            if (signatureVerifier.isEnabled()) {
+                WebhookSignatureVerifier.SignedInputStream signedBody = signatureVerifier.wrap(payload);
+                byte[] bytes = signedBody.readAllBytes();
+                if (!signedBody.verify(signature)) {
+                    log.warn("Rejecting delivery {} with an invalid signature", deliveryId);
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid signature");
+                }
+                body = new ByteArrayInputStream(bytes);
+            }
+            PullRequestInfo prInfo = parsePullRequestInfo(body);
+            String action = prInfo.getAction();
 
             if (!isRelevantAction(action)) {
                 log.debug("Ignoring PR action: {}", action);
                 return ResponseEntity.ok("Ignored action: " + action);
             }
+            if (!prInfo.isComplete()) {
+                throw new IllegalArgumentException("Payload is missing the repository, PR number or head/base SHA");
+            }
+            if (deliveryId != null && !deliveryDeduplicator.markIfNew(deliveryId)) {
+                log.info("Ignoring duplicate delivery {} for PR #{} on {}", deliveryId, prInfo.getPrNumber(), prInfo.getRepo());
+                return ResponseEntity.ok("Duplicate delivery ignored");
+            }
 
-            PullRequestInfo prInfo = extractPullRequestInfo(json);
             logPullRequestInfo(prInfo);
 
             ReviewJob job = createReviewJob(prInfo);
-            jobQueue.enqueue(job);
+            try {
+                jobDispatcher.dispatch(job);
+            } catch (RuntimeException e) {
+                if (deliveryId != null) {
+                    deliveryDeduplicator.forget(deliveryId);
+                }
+                throw e;
+            }
 
             log.info("Job enqueued for PR #{} on {}", prInfo.getPrNumber(), prInfo.getRepo());
-            return ResponseEntity.ok("PR event handled successfully");
+            return ResponseEntity.accepted().body("PR event accepted");
 
         } catch (Exception e) {
             log.error("Error processing webhook payload", e);
@@ -67,21 +123,76 @@ public class GithubWebhookService {
         return PULL_REQUEST_EVENT.equals(event);
     }
 
-    private String extractAction(JsonNode json) {
-        return json.get("action").asText();
-    }
-
     private boolean isRelevantAction(String action) {
         return ACTION_OPENED.equals(action) || ACTION_SYNCHRONIZE.equals(action);
     }
 
-    private PullRequestInfo extractPullRequestInfo(JsonNode json) {
-        String repo = json.get("repository").get("full_name").asText();
-        int prNumber = json.get("number").asInt();
-        String headSha = json.get(PULL_REQUEST_EVENT).get("head").get("sha").asText();
-        String baseSha = json.get(PULL_REQUEST_EVENT).get("base").get("sha").asText();
+    /**
+     * Reads {@code action}, {@code number}, {@code repository.full_name},
+     * {@code pull_request.head/base.sha} and the PR's additions and deletions, skipping every other subtree. Parsing stops as
+     * soon as the action is known to be irrelevant or all fields have been found.
+     */
+    private PullRequestInfo parsePullRequestInfo(InputStream payload) throws IOException {
+        PullRequestInfo info = new PullRequestInfo();
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            // The request body belongs to the caller
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Webhook payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "action" -> info.action = parser.getValueAsString();
+                    case "number" -> info.prNumber = parser.getValueAsInt(-1);
+                    case "repository" -> info.repo = readStringField(parser, "full_name");
+                    case PULL_REQUEST_EVENT -> readPullRequest(parser, info);
+                    default -> parser.skipChildren();
+                }
+                if (info.action != null && (!isRelevantAction(info.action) || info.isComplete())) {
+                    break;
+                }
+            }
+        }
+        return info;
+    }
+
+    private static void readPullRequest(JsonParser parser, PullRequestInfo info) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "head" -> info.headSha = readStringField(parser, "sha");
+                case "base" -> info.baseSha = readStringField(parser, "sha");
+                case "additions" -> info.additions = parser.getValueAsInt(-1);
+                case "deletions" -> info.deletions = parser.getValueAsInt(-1);
+                default -> parser.skipChildren();
+            }
+        }
+    }
 
-        return new PullRequestInfo(repo, prNumber, headSha, baseSha);
+    /** Reads one string field of the object the parser is positioned on, skipping the rest of it. */
+    private static String readStringField(JsonParser parser, String name) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (value == null && name.equals(field)) {
+                value = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
     }
 
     private void logPullRequestInfo(PullRequestInfo prInfo) {
@@ -92,29 +203,35 @@ public class GithubWebhookService {
     }
 
     private ReviewJob createReviewJob(PullRequestInfo prInfo) {
-        return new ReviewJob(prInfo.getRepo(), prInfo.getHeadSha(), prInfo.getPrNumber(), prInfo.getBaseSha());
+        return new ReviewJob(prInfo.getRepo(), prInfo.getHeadSha(), prInfo.getPrNumber(), prInfo.getBaseSha(),
+                prInfo.getAction(), prInfo.getChangedLines());
     }
 
     /**
      * Data class to hold pull request information extracted from webhook payload
      */
     private static class PullRequestInfo {
-        private final String repo;
-        private final int prNumber;
-        private final String headSha;
-        private final String baseSha;
-
-        public PullRequestInfo(String repo, int prNumber, String headSha, String baseSha) {
-            this.repo = repo;
-            this.prNumber = prNumber;
-            this.headSha = headSha;
-            this.baseSha = baseSha;
-        }
-
+        private String action;
+        private String repo;
+        private int prNumber = -1;
+        private String headSha;
+        private String baseSha;
+        private int additions = -1;
+        private int deletions = -1;
+
+        public String getAction() { return action; }
         public String getRepo() { return repo; }
         public int getPrNumber() { return prNumber; }
         public String getHeadSha() { return headSha; }
         public String getBaseSha() { return baseSha; }
+
+        int getChangedLines() {
+            return additions < 0 || deletions < 0 ? -1 : additions + deletions;
+        }
+
+        boolean isComplete() {
+            return repo != null && prNumber >= 0 && headSha != null && baseSha != null;
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package com.pr.review_assistant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Checks the {@code X-Hub-Signature-256} header GitHub sends with every delivery. The key
+ * is set up once; each thread keeps a clone of the initialized {@link Mac}, so a check
+ * costs one pass over the body. Verification is off when {@code github.webhook.secret} is
+ * empty.
+ */
+@Slf4j
+@Component
+public class WebhookSignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    private final Mac prototype;
+    private final ThreadLocal<Mac> macs;
+
+    public WebhookSignatureVerifier(@Value("${github.webhook.secret:}") String secret) {
+        if (secret == null || secret.isEmpty()) {
+            log.warn("github.webhook.secret is not set; webhook signatures are not verified");
+            this.prototype = null;
+            this.macs = null;
+            return;
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize webhook signature verification", e);
+        }
+        this.macs = ThreadLocal.withInitial(this::copyPrototype);
+    }
+
+    public boolean isEnabled() {
+        return prototype != null;
+    }
+
+    /**
+     * Wraps the request body so every byte read from it is fed into the HMAC. Call
+     * {@link SignedInputStream#verify(String)} once the body has been consumed.
+     */
+    public SignedInputStream wrap(InputStream body) {
+        Mac mac = macs.get();
+        mac.reset();
+        return new SignedInputStream(body, mac);
+    }
+
+    private Mac copyPrototype() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " provider does not support cloning", e);
+        }
+    }
+
+    /**
+     * Request body that updates an HMAC as it is read.
+     */
+    public static final class SignedInputStream extends FilterInputStream {
+
+        private final Mac mac;
+
+        private SignedInputStream(InputStream in, Mac mac) {
+            super(in);
+            this.mac = mac;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                mac.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = in.read(buffer, offset, length);
+            if (n > 0) {
+                mac.update(buffer, offset, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        /**
+         * Reads whatever is left unread and compares the HMAC of the whole body
+         * with the header value in constant time.
+         */
+        public boolean verify(String signatureHeader) throws IOException {
+            skip(Long.MAX_VALUE);
+            if (signatureHeader == null || !signatureHeader.startsWith(SIGNATURE_PREFIX)) {
+                return false;
+            }
+            byte[] expected;
+            try {
+                expected = HexFormat.of().parseHex(signatureHeader, SIGNATURE_PREFIX.length(), signatureHeader.length());
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            return MessageDigest.isEqual(mac.doFinal(), expected);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisProcessTest {
+
+    @Test
+    void testKeepsOnlyTheTailOfNoisyOutput() throws Exception {
+        AnalysisProcess analysis = start("for i in $(seq 1 50000); do echo \"line $i\"; done", 1024);
+
+        assertEquals(0, analysis.await(Duration.ofSeconds(30), Map.of(), Duration.ofSeconds(5)));
+        String output = analysis.output();
+        assertTrue(output.startsWith("["), output.substring(0, 40));
+        assertTrue(output.endsWith("line 50000\n"));
+        assertTrue(output.length() < 1100);
+        assertNull(analysis.timedOutStage());
+    }
+
+    @Test
+    void testKillsTheProcessTreeWhenAStageRunsOverBudget() throws Exception {
+        AnalysisProcess analysis = start("echo '==> stage: fast'; echo '==> stage: slow'; sleep 30 & echo \"child $!\"; wait",
+                4096);
+
+        long started = System.nanoTime();
+        int exitCode = analysis.await(Duration.ofSeconds(30), Map.of("slow", Duration.ofMillis(300)), Duration.ofSeconds(2));
+
+        assertEquals(-1, exitCode);
+        assertEquals("slow", analysis.timedOutStage());
+        assertTrue(System.nanoTime() - started < Duration.ofSeconds(10).toNanos());
+        long child = Long.parseLong(analysis.output().lines()
+                .filter(line -> line.startsWith("child ")).findFirst().orElseThrow().substring(6));
+        assertTrue(exitsWithin(child, Duration.ofSeconds(5)), "The script's children must be killed too");
+    }
+
+    @Test
+    void testTotalBudgetAppliesWithoutStages() throws Exception {
+        AnalysisProcess analysis = start("sleep 30", 1024);
+
+        assertEquals(-1, analysis.await(Duration.ofMillis(300), Map.of(), Duration.ofSeconds(2)));
+        assertEquals("total", analysis.timedOutStage());
+    }
+
+    @Test
+    void testOutputTailWrapsAround() {
+        AnalysisProcess.OutputTail tail = new AnalysisProcess.OutputTail(5);
+        tail.append("abc".toCharArray(), 0, 3);
+        assertEquals("abc", tail.toString());
+        tail.append("defg".toCharArray(), 0, 4);
+        assertEquals("[2 earlier characters dropped]\ncdefg", tail.toString());
+        tail.append("0123456789".toCharArray(), 2, 8);
+        assertEquals("[10 earlier characters dropped]\n56789", tail.toString());
+    }
+
+    @Test
+    void testParseBudgets() {
+        assertEquals(Map.of("compile", Duration.ofMinutes(15), "spotbugs", Duration.ofSeconds(90)),
+                AnalysisProcess.parseBudgets("compile=PT15M, spotbugs=PT90S"));
+        assertTrue(AnalysisProcess.parseBudgets("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> AnalysisProcess.parseBudgets("compile"));
+    }
+
+    private static boolean exitsWithin(long pid, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+            if (handle.isEmpty() || !handle.get().isAlive() || isZombie(pid)) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    /** A killed child re-parented to an init that does not reap it stays listed as a zombie. */
+    private static boolean isZombie(long pid) {
+        try {
+            String stat = Files.readString(Path.of("/proc", Long.toString(pid), "stat"));
+            return stat.substring(stat.lastIndexOf(')') + 2).startsWith("Z");
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static AnalysisProcess start(String script, int tailChars) throws IOException {
+        Process process = new ProcessBuilder("bash", "-c", script).redirectErrorStream(true).start();
+        return new AnalysisProcess(process, tailChars, "test");
+    }
+}
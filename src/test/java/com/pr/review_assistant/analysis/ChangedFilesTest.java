@@ -0,0 +1,68 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangedFilesTest {
+
+    private static ChangedFiles of(String... paths) {
+        return new ChangedFiles(new LinkedHashSet<>(List.of(paths)));
+    }
+
+    @Test
+    void testMatchesAbsoluteReportPath() {
+        ChangedFiles changed = of("src/main/java/com/example/Foo.java", "src/main/java/com/example/Bar.java");
+
+        assertEquals("src/main/java/com/example/Foo.java",
+                changed.match("/tmp/ws/checkout/repo/src/main/java/com/example/Foo.java"));
+        assertEquals("src/main/java/com/example/Bar.java",
+                changed.match("C:\\ws\\repo\\src\\main\\java\\com\\example\\Bar.java"));
+        assertEquals("src/main/java/com/example/Foo.java",
+                changed.match("/tmp//repo/src/main/java/com/example//Foo.java"));
+    }
+
+    @Test
+    void testMatchesSourceRootRelativeReportPath() {
+        ChangedFiles changed = of("core/src/main/java/com/example/Foo.java");
+
+        assertEquals("core/src/main/java/com/example/Foo.java", changed.match("com/example/Foo.java"));
+    }
+
+    @Test
+    void testComparesWholeSegments() {
+        ChangedFiles changed = of("src/main/java/com/example/Foo.java");
+
+        assertNull(changed.match("/repo/src/main/java/com/example/MyFoo.java"));
+        assertNull(changed.match("/repo/src/main/java/com/other/Foo.java"));
+        assertNull(changed.match(""));
+        assertNull(changed.match(null));
+    }
+
+    @Test
+    void testPrefersLongestChangedPath() {
+        ChangedFiles changed = of("Foo.java", "b/Foo.java", "a/b/Foo.java");
+
+        assertEquals("a/b/Foo.java", changed.match("/repo/a/b/Foo.java"));
+        assertEquals("b/Foo.java", changed.match("/repo/c/b/Foo.java"));
+        assertEquals("Foo.java", changed.match("/repo/Foo.java"));
+    }
+
+    @Test
+    void testAmbiguousSuffixResolvesToFirstListed() {
+        ChangedFiles changed = of("api/src/main/java/com/example/Foo.java", "impl/src/main/java/com/example/Foo.java");
+
+        assertEquals("api/src/main/java/com/example/Foo.java", changed.match("com/example/Foo.java"));
+    }
+
+    @Test
+    void testToRelativePath() {
+        assertEquals("src/Foo.java", ChangedFiles.toRelativePath("/tmp/x/repo/src/Foo.java"));
+        assertEquals("src/Foo.java", ChangedFiles.toRelativePath("/app/src//Foo.java"));
+        assertEquals("a/b.java", ChangedFiles.toRelativePath("a\\\\b.java"));
+        assertEquals("", ChangedFiles.toRelativePath(null));
+    }
+}
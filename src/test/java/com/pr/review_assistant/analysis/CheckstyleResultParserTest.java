@@ -37,7 +37,7 @@ class CheckstyleResultParserTest {
         assertEquals("TestClass.java", first.getFile());
         assertEquals(10, first.getLine());
         assertEquals(5, first.getColumn());
-        assertEquals("warning", first.getSeverity());
+        assertEquals(Severity.WARNING, first.getSeverity());
         assertEquals("MissingJavadocMethodCheck", first.getRule());
         assertEquals("Missing a Javadoc comment.", first.getMessage());
         
@@ -45,7 +45,7 @@ class CheckstyleResultParserTest {
         assertEquals("TestClass.java", second.getFile());
         assertEquals(15, second.getLine());
         assertEquals(20, second.getColumn());
-        assertEquals("error", second.getSeverity());
+        assertEquals(Severity.ERROR, second.getSeverity());
         assertEquals("LocalVariableNameCheck", second.getRule());
     }
     
@@ -65,4 +65,30 @@ class CheckstyleResultParserTest {
         
         assertTrue(findings.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFiltersByChangedFilesListNextToReport(@TempDir Path tempDir) throws IOException {
+        String sampleXml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <checkstyle version="10.3.4">
+                <file name="/tmp/job/checkout/repo/src/main/java/com/example/Changed.java">
+                    <error line="3" column="1" severity="warning" message="Line is longer than 120 characters." source="com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck"/>
+                </file>
+                <file name="/tmp/job/checkout/repo/src/main/java/com/example/Untouched.java">
+                    <error line="7" column="1" severity="warning" message="Line is longer than 120 characters." source="com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck"/>
+                </file>
+            </checkstyle>
+            """;
+
+        Path xmlFile = tempDir.resolve("checkstyle-result.xml");
+        Files.writeString(xmlFile, sampleXml);
+        Files.writeString(tempDir.resolve(CheckstyleResultParser.CHANGED_FILES_LIST),
+                "src/main/java/com/example/Changed.java\n");
+
+        CheckstyleResultParser parser = new CheckstyleResultParser();
+        List<Finding> findings = parser.parseCheckstyleResults(xmlFile.toString());
+
+        assertEquals(1, findings.size());
+        assertEquals("src/main/java/com/example/Changed.java", findings.get(0).getRelativePath());
+    }
+}
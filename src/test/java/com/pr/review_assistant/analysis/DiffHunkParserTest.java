@@ -0,0 +1,67 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffHunkParserTest {
+
+    private static final String DIFF = """
+        diff --git a/src/main/java/com/example/Changed.java b/src/main/java/com/example/Changed.java
+        index 83db48f..bf269f4 100644
+        --- a/src/main/java/com/example/Changed.java
+        +++ b/src/main/java/com/example/Changed.java
+        @@ -3,0 +4,2 @@ public class Changed {
+        +    int added;
+        +    int alsoAdded;
+        @@ -10 +12 @@ public class Changed {
+        -    int old;
+        +    int replaced;
+        @@ -20,3 +21,0 @@ public class Changed {
+        -    int removed;
+        -    int removed2;
+        -    int removed3;
+        diff --git a/src/main/java/com/example/Gone.java b/src/main/java/com/example/Gone.java
+        deleted file mode 100644
+        --- a/src/main/java/com/example/Gone.java
+        +++ /dev/null
+        @@ -1,3 +0,0 @@
+        -class Gone {
+        -}
+        -
+        """;
+
+    @Test
+    void testParsesHeadSideRanges() throws IOException {
+        ChangedLines lines = new DiffHunkParser().parse(new StringReader(DIFF));
+
+        String path = "src/main/java/com/example/Changed.java";
+        assertFalse(lines.contains(path, 3));
+        assertTrue(lines.contains(path, 4));
+        assertTrue(lines.contains(path, 5));
+        assertFalse(lines.contains(path, 6));
+        assertTrue(lines.contains(path, 12));
+        assertFalse(lines.contains(path, 21), "Pure deletions add no head-side lines");
+        assertFalse(lines.containsFile("src/main/java/com/example/Gone.java"));
+    }
+
+    @Test
+    void testRetainsOnlyFindingsOnChangedLines() throws IOException {
+        ChangedLines lines = new DiffHunkParser().parse(new StringReader(DIFF));
+        String path = "src/main/java/com/example/Changed.java";
+
+        List<Finding> retained = lines.retainChanged(List.of(
+                Finding.builder().relativePath(path).line(4).build(),
+                Finding.builder().relativePath(path).line(30).build(),
+                Finding.builder().relativePath(path).line(0).build(),
+                Finding.builder().relativePath("src/main/java/com/example/Other.java").line(4).build()));
+
+        assertEquals(2, retained.size());
+        assertEquals(4, retained.get(0).getLine());
+        assertEquals(0, retained.get(1).getLine());
+    }
+}
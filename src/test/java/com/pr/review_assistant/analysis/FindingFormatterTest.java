@@ -0,0 +1,84 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FindingFormatterTest {
+
+    @Test
+    void testEmptyFindings() {
+        String comment = new FindingFormatter().formatFindings(List.of());
+
+        assertTrue(comment.contains("**No issues found!**"));
+        assertTrue(comment.contains("\n---\n"));
+    }
+
+    @Test
+    void testCountsAndDetailsInSeverityOrder() {
+        List<Finding> findings = List.of(
+                finding("info", "Code Style", "A.java"),
+                finding("warning", "Code Quality", "B.java"),
+                finding("error", "Code Safety", "C.java"),
+                finding("warning", "Code Quality", "D.java"));
+
+        String comment = new FindingFormatter().formatFindings(findings);
+
+        assertTrue(comment.contains("**Summary:** Found 4 issue(s)"));
+        assertTrue(comment.contains("**warning**: 2 issue(s)"));
+        assertTrue(comment.contains("**Code Quality**: 2 issue(s)"));
+        assertTrue(comment.indexOf("ERROR Issues") < comment.indexOf("WARNING Issues"));
+        assertTrue(comment.indexOf("WARNING Issues") < comment.indexOf("INFO Issues"));
+        assertTrue(comment.contains("<strong>D.java:10</strong>"));
+        assertFalse(comment.contains("left out"));
+        assertTrue(comment.contains("\n---\n*Generated by PR Review Assistant"));
+    }
+
+    @Test
+    void testCollapsesDetailsThatDoNotFit() {
+        List<Finding> findings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            findings.add(finding("error", "Code Safety", "E" + i + ".java"));
+        }
+        for (int i = 0; i < 5000; i++) {
+            findings.add(finding("warning", "Code Style", "W" + i + ".java"));
+        }
+
+        String comment = new FindingFormatter().formatFindings(findings);
+
+        assertTrue(comment.length() <= FindingFormatter.DEFAULT_MAX_CHARS, "length " + comment.length());
+        assertTrue(comment.contains("**Summary:** Found 5020 issue(s)"));
+        assertTrue(comment.contains("**warning**: 5000 issue(s)"));
+        assertTrue(comment.contains("<strong>E19.java:10</strong>"));
+        assertTrue(comment.matches("(?s).*Details of \\d+ warning issue\\(s\\) were left out.*"));
+        assertTrue(comment.contains("\n---\n*Generated by PR Review Assistant"));
+    }
+
+    @Test
+    void testSmallBudgetStillKeepsSummaryAndFooter() {
+        List<Finding> findings = List.of(finding("error", "Code Safety", "A.java"),
+                finding("info", "Code Style", "B.java"));
+
+        String comment = new FindingFormatter(1000).formatFindings(findings);
+
+        assertFalse(comment.contains("<details>"));
+        assertTrue(comment.contains("Details of 1 error, 1 info issue(s) were left out"));
+        assertTrue(comment.contains("run Checkstyle and SpotBugs locally for the full list"));
+        assertTrue(comment.contains("Next Steps"));
+    }
+
+    private static Finding finding(String severity, String category, String file) {
+        return Finding.builder()
+                .file(file)
+                .line(10)
+                .column(5)
+                .severity(severity)
+                .rule("SomeRule")
+                .message("Something is off in " + file)
+                .descriptor(new RuleDescriptor(category, Impact.MEDIUM, "It matters because of reasons.", "Fix it."))
+                .build();
+    }
+}
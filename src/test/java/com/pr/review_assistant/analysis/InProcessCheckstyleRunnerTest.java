@@ -0,0 +1,256 @@
+package com.pr.review_assistant.analysis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InProcessCheckstyleRunnerTest {
+
+    @Test
+    void testChecksOnlyChangedFilesWithServiceConfig(@TempDir Path repo) throws Exception {
+        Path sourceDir = Files.createDirectories(repo.resolve("src/main/java/com/example"));
+        Files.writeString(sourceDir.resolve("Changed.java"), """
+            package com.example;
+
+            public class Changed {
+                public static final int myConstant = 1;
+            }
+            """);
+        Files.writeString(sourceDir.resolve("Untouched.java"), """
+            package com.example;
+
+            public class Untouched {
+                public static final int anotherConstant = 1;
+            }
+            """);
+
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", disabledCache());
+        List<Finding> findings = runner.check(repo, List.of(
+                "src/main/java/com/example/Changed.java",
+                "src/main/java/com/example/Deleted.java"));
+
+        assertFalse(findings.isEmpty());
+        assertTrue(findings.stream().allMatch(f -> "src/main/java/com/example/Changed.java".equals(f.getRelativePath())));
+        Finding constantName = findings.stream()
+                .filter(f -> "ConstantNameCheck".equals(f.getRule()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("Changed.java", constantName.getFile());
+        assertEquals(4, constantName.getLine());
+        assertEquals(Severity.WARNING, constantName.getSeverity());
+    }
+
+    @Test
+    void testPrefersRepositoryConfig(@TempDir Path repo) throws Exception {
+        Files.writeString(repo.resolve(InProcessCheckstyleRunner.REPO_CONFIG), """
+            <?xml version="1.0"?>
+            <!DOCTYPE module PUBLIC
+                      "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                      "https://checkstyle.org/dtds/configuration_1_3.dtd">
+            <module name="Checker">
+                <module name="TreeWalker">
+                    <module name="MagicNumber"/>
+                </module>
+            </module>
+            """);
+        Files.writeString(repo.resolve("Numbers.java"), """
+            public class Numbers {
+                public static final int myConstant = 1;
+                int twice(int x) { return x * 42; }
+            }
+            """);
+
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", disabledCache());
+        List<Finding> findings = runner.check(repo, List.of("Numbers.java"));
+
+        assertEquals(1, findings.size());
+        assertEquals("MagicNumberCheck", findings.get(0).getRule());
+        assertEquals(Severity.ERROR, findings.get(0).getSeverity());
+    }
+
+    @Test
+    void testUnparsableFileDoesNotFailTheCheck(@TempDir Path repo) throws Exception {
+        Files.writeString(repo.resolve(InProcessCheckstyleRunner.REPO_CONFIG), MAGIC_NUMBER_CONFIG);
+        Files.writeString(repo.resolve("Broken.java"), "public class Broken { int x = ; ");
+        Files.writeString(repo.resolve("Numbers.java"), """
+            public class Numbers {
+                int twice(int x) { return x * 42; }
+            }
+            """);
+
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", disabledCache());
+        List<Finding> findings = runner.check(repo, List.of("Broken.java", "Numbers.java"));
+
+        assertEquals(1, findings.size());
+        assertEquals("Numbers.java", findings.get(0).getRelativePath());
+        assertEquals("MagicNumberCheck", findings.get(0).getRule());
+    }
+
+    @Test
+    void testAppliesRepositorySuppressions(@TempDir Path repo) throws Exception {
+        Files.writeString(repo.resolve(InProcessCheckstyleRunner.REPO_CONFIG), """
+            <?xml version="1.0"?>
+            <!DOCTYPE module PUBLIC
+                      "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                      "https://checkstyle.org/dtds/configuration_1_3.dtd">
+            <module name="Checker">
+                <module name="SuppressionFilter">
+                    <property name="file" value="checkstyle-suppressions.xml"/>
+                    <property name="optional" value="true"/>
+                </module>
+                <module name="TreeWalker">
+                    <module name="MagicNumber"/>
+                </module>
+            </module>
+            """);
+        Files.writeString(repo.resolve("checkstyle-suppressions.xml"), """
+            <?xml version="1.0"?>
+            <!DOCTYPE suppressions PUBLIC
+                      "-//Checkstyle//DTD SuppressionFilter Configuration 1.2//EN"
+                      "https://checkstyle.org/dtds/suppressions_1_2.dtd">
+            <suppressions>
+                <suppress checks="MagicNumber" files="Generated\\.java"/>
+            </suppressions>
+            """);
+        String source = """
+            public class %s {
+                int twice(int x) { return x * 42; }
+            }
+            """;
+        Files.writeString(repo.resolve("Generated.java"), source.formatted("Generated"));
+        Files.writeString(repo.resolve("Numbers.java"), source.formatted("Numbers"));
+
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", disabledCache());
+        List<Finding> findings = runner.check(repo, List.of("Generated.java", "Numbers.java"));
+
+        assertEquals(1, findings.size());
+        assertEquals("Numbers.java", findings.get(0).getRelativePath());
+    }
+
+    @Test
+    void testReusesCachedFindingsForUnchangedContent(@TempDir Path repo, @TempDir Path cacheDir) throws Exception {
+        Files.writeString(repo.resolve("Numbers.java"), """
+            public class Numbers {
+                public static final int myConstant = 1;
+            }
+            """);
+        Files.writeString(repo.resolve("Copy.java"), Files.readString(repo.resolve("Numbers.java")));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FindingsCache cache = new FindingsCache(true, cacheDir.toString(), 100, DataSize.ofMegabytes(1), meterRegistry);
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", cache);
+
+        List<Finding> first = runner.check(repo, List.of("Numbers.java"));
+        List<Finding> again = runner.check(repo, List.of("Numbers.java"));
+
+        assertFalse(first.isEmpty());
+        assertEquals(first, again);
+        assertEquals(1.0, meterRegistry.get("review.findings.cache.lookups").tag("result", "memory").counter().count());
+
+        // The same content at another path is checked again, since suppressions match on paths
+        List<Finding> copy = runner.check(repo, List.of("Copy.java"));
+        assertEquals(first.size(), copy.size());
+        assertEquals("Copy.java", copy.get(0).getRelativePath());
+        assertEquals(1.0, meterRegistry.get("review.findings.cache.lookups").tag("result", "memory").counter().count());
+        assertTrue(meterRegistry.get("review.findings.cache.saved").counter().count() > 0);
+
+        // A fresh process finds the entry on disk
+        FindingsCache restarted = new FindingsCache(true, cacheDir.toString(), 100, DataSize.ofMegabytes(1), meterRegistry);
+        List<Finding> fromDisk = new InProcessCheckstyleRunner("checkstyle.xml", restarted).check(repo, List.of("Numbers.java"));
+        assertEquals(first, fromDisk);
+        assertEquals(1.0, meterRegistry.get("review.findings.cache.lookups").tag("result", "disk").counter().count());
+
+        // A different rule set does not reuse the results
+        Files.writeString(repo.resolve(InProcessCheckstyleRunner.REPO_CONFIG), """
+            <?xml version="1.0"?>
+            <!DOCTYPE module PUBLIC
+                      "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                      "https://checkstyle.org/dtds/configuration_1_3.dtd">
+            <module name="Checker"/>
+            """);
+        assertTrue(runner.check(repo, List.of("Numbers.java")).isEmpty());
+    }
+
+    @Test
+    void testEditingSuppressionsInvalidatesCachedFindings(@TempDir Path repo, @TempDir Path cacheDir) throws Exception {
+        Files.writeString(repo.resolve(InProcessCheckstyleRunner.REPO_CONFIG), """
+            <?xml version="1.0"?>
+            <!DOCTYPE module PUBLIC
+                      "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                      "https://checkstyle.org/dtds/configuration_1_3.dtd">
+            <module name="Checker">
+                <module name="SuppressionFilter">
+                    <property name="file" value="checkstyle-suppressions.xml"/>
+                </module>
+                <module name="TreeWalker">
+                    <module name="MagicNumber"/>
+                </module>
+            </module>
+            """);
+        String suppressions = """
+            <?xml version="1.0"?>
+            <!DOCTYPE suppressions PUBLIC
+                      "-//Checkstyle//DTD SuppressionFilter Configuration 1.2//EN"
+                      "https://checkstyle.org/dtds/suppressions_1_2.dtd">
+            <suppressions>
+                <suppress checks="MagicNumber" files="%s"/>
+            </suppressions>
+            """;
+        Files.writeString(repo.resolve("checkstyle-suppressions.xml"), suppressions.formatted("Other\\.java"));
+        Files.writeString(repo.resolve("Numbers.java"), """
+            public class Numbers {
+                int twice(int x) { return x * 42; }
+            }
+            """);
+        FindingsCache cache = new FindingsCache(true, cacheDir.toString(), 100, DataSize.ofMegabytes(1), new SimpleMeterRegistry());
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", cache);
+
+        assertEquals(1, runner.check(repo, List.of("Numbers.java")).size());
+
+        Files.writeString(repo.resolve("checkstyle-suppressions.xml"), suppressions.formatted("Numbers\\.java"));
+        assertTrue(runner.check(repo, List.of("Numbers.java")).isEmpty());
+    }
+
+    @Test
+    void testDoesNotCacheFilesThatFailedToProcess(@TempDir Path repo, @TempDir Path cacheDir) throws Exception {
+        Files.writeString(repo.resolve(InProcessCheckstyleRunner.REPO_CONFIG), MAGIC_NUMBER_CONFIG);
+        Files.writeString(repo.resolve("Broken.java"), "public class Broken { int x = ; ");
+        Files.writeString(repo.resolve("Numbers.java"), """
+            public class Numbers {
+                int twice(int x) { return x * 42; }
+            }
+            """);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FindingsCache cache = new FindingsCache(true, cacheDir.toString(), 100, DataSize.ofMegabytes(1), meterRegistry);
+        InProcessCheckstyleRunner runner = new InProcessCheckstyleRunner("checkstyle.xml", cache);
+
+        runner.check(repo, List.of("Broken.java", "Numbers.java"));
+        List<Finding> second = runner.check(repo, List.of("Broken.java", "Numbers.java"));
+
+        assertEquals(1, second.size());
+        assertEquals(1.0, meterRegistry.get("review.findings.cache.lookups").tag("result", "memory").counter().count());
+        assertEquals(3.0, meterRegistry.get("review.findings.cache.lookups").tag("result", "miss").counter().count());
+    }
+
+    private static final String MAGIC_NUMBER_CONFIG = """
+            <?xml version="1.0"?>
+            <!DOCTYPE module PUBLIC
+                      "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                      "https://checkstyle.org/dtds/configuration_1_3.dtd">
+            <module name="Checker">
+                <module name="TreeWalker">
+                    <module name="MagicNumber"/>
+                </module>
+            </module>
+            """;
+
+    private static FindingsCache disabledCache() {
+        return new FindingsCache(false, "findings-cache", 0, DataSize.ofBytes(0), new SimpleMeterRegistry());
+    }
+}
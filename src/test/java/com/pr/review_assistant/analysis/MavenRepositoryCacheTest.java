@@ -0,0 +1,118 @@
+package com.pr.review_assistant.analysis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MavenRepositoryCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testEvictionWaitingForRunningBuildHoldsBackNewBuilds(@TempDir Path tempDir) throws Exception {
+        MavenRepositoryCache cache = new MavenRepositoryCache(true, tempDir.toString(), DataSize.ofBytes(10),
+                Duration.ofSeconds(10), meterRegistry);
+        Path artifact = writeArtifact(tempDir, "org/foo/bar/1.0");
+
+        CountDownLatch finishBuild = new CountDownLatch(1);
+        Thread running = build(cache, new CountDownLatch(1), finishBuild);
+        Thread.sleep(100);
+        Thread evictor = new Thread(cache::enforceBudget);
+        evictor.start();
+        Thread.sleep(200);
+        CountDownLatch laterStarted = new CountDownLatch(1);
+        Thread later = build(cache, laterStarted, new CountDownLatch(0));
+
+        assertFalse(laterStarted.await(300, TimeUnit.MILLISECONDS), "A new build should queue behind the waiting eviction");
+        finishBuild.countDown();
+        assertTrue(laterStarted.await(5, TimeUnit.SECONDS));
+        evictor.join(5_000);
+        running.join(5_000);
+        later.join(5_000);
+
+        assertFalse(Files.exists(artifact));
+        assertEquals(0.0, meterRegistry.get("review.maven.cache.evictions.skipped").counter().count());
+    }
+
+    @Test
+    void testCountsEvictionSkippedWhileBuildsRun(@TempDir Path tempDir) throws Exception {
+        MavenRepositoryCache cache = new MavenRepositoryCache(true, tempDir.toString(), DataSize.ofBytes(10),
+                Duration.ofMillis(100), meterRegistry);
+        Path artifact = writeArtifact(tempDir, "org/foo/bar/1.0");
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finishBuild = new CountDownLatch(1);
+        Thread running = build(cache, started, finishBuild);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        cache.enforceBudget();
+        finishBuild.countDown();
+        running.join(5_000);
+
+        assertTrue(Files.exists(artifact));
+        assertEquals(1.0, meterRegistry.get("review.maven.cache.evictions.skipped").counter().count());
+    }
+
+    @Test
+    void testSweepWithinBudgetDoesNotWaitForBuilds(@TempDir Path tempDir) throws Exception {
+        MavenRepositoryCache cache = new MavenRepositoryCache(true, tempDir.toString(), DataSize.ofKilobytes(10),
+                Duration.ofSeconds(10), meterRegistry);
+        Path artifact = writeArtifact(tempDir, "org/foo/bar/1.0");
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finishBuild = new CountDownLatch(1);
+        Thread running = build(cache, started, finishBuild);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        cache.enforceBudget();
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        CountDownLatch laterStarted = new CountDownLatch(1);
+        Thread later = build(cache, laterStarted, new CountDownLatch(0));
+
+        assertTrue(waitedMillis < 5_000, "waited " + waitedMillis + " ms");
+        assertTrue(laterStarted.await(5, TimeUnit.SECONDS), "New builds should not queue behind a routine sweep");
+        finishBuild.countDown();
+        running.join(5_000);
+        later.join(5_000);
+
+        assertTrue(Files.exists(artifact));
+        assertEquals(0.0, meterRegistry.get("review.maven.cache.evictions.skipped").counter().count());
+    }
+
+    private static Path writeArtifact(Path root, String version) throws IOException {
+        Path dir = Files.createDirectories(root.resolve(version));
+        Path jar = dir.resolve("bar-1.0.jar");
+        Files.write(jar, new byte[1000]);
+        return jar;
+    }
+
+    /** Runs a build on its own thread, since the lock has to be released by the thread that took it. */
+    private static Thread build(MavenRepositoryCache cache, CountDownLatch started, CountDownLatch finish) {
+        Thread thread = new Thread(() -> {
+            try {
+                cache.acquire();
+                try {
+                    started.countDown();
+                    finish.await(5, TimeUnit.SECONDS);
+                } finally {
+                    cache.release();
+                }
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pr.review_assistant.analysis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(meterRegistry);
+
+    @Test
+    void testRecordsScriptStagesPerRepository(@TempDir Path dir) throws IOException {
+        Path timings = dir.resolve(PipelineMetrics.STAGE_TIMINGS);
+        Files.writeString(timings, "checkout 1500\ncompile 42000\ngarbage\ncompile x\n");
+
+        metrics.recordScriptStages("o/r", timings);
+        metrics.recordScriptStages("o/r", dir.resolve("missing.txt"));
+
+        assertEquals(1500, meterRegistry.get("review.pipeline.stage")
+                .tags("repo", "o/r", "stage", "checkout").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get("review.pipeline.stage")
+                .tags("repo", "o/r", "stage", "compile").timer().count());
+        assertEquals(2, meterRegistry.get("review.pipeline.stage").timers().size());
+    }
+
+    @Test
+    void testRecordsOutcomeAndFindings() {
+        metrics.recordOutcome("o/r", "success");
+        metrics.recordOutcome("o/r", "failed");
+        metrics.recordFindings("o/r", 12);
+        metrics.recordEndToEnd("o/r", System.currentTimeMillis() - 2000);
+
+        assertEquals(1.0, meterRegistry.get("review.pipeline.jobs").tags("outcome", "failed").counter().count());
+        assertEquals(12.0, meterRegistry.get("review.pipeline.findings").summary().totalAmount());
+        assertTrue(meterRegistry.get("review.pipeline.end_to_end").timer().totalTime(TimeUnit.MILLISECONDS) >= 2000);
+    }
+}
@@ -0,0 +1,51 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryMirrorCacheTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsedIdleMirrorWhenOverBudget(@TempDir Path tempDir) throws IOException {
+        RepositoryMirrorCache cache = new RepositoryMirrorCache(true, tempDir.toString(), DataSize.ofBytes(1500));
+
+        Path oldest = useMirror(cache, "org/oldest", 1_000);
+        Path recent = useMirror(cache, "org/recent", 2_000);
+        Files.write(oldest.resolve("pack"), new byte[1000]);
+        Files.write(recent.resolve("pack"), new byte[1000]);
+
+        cache.enforceBudget();
+
+        assertFalse(Files.exists(oldest), "Least recently used mirror should be evicted");
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    void testNeverEvictsLeasedMirror(@TempDir Path tempDir) throws IOException {
+        RepositoryMirrorCache cache = new RepositoryMirrorCache(true, tempDir.toString(), DataSize.ofBytes(10));
+
+        Path leased = cache.acquire("org/busy");
+        Files.write(leased.resolve("pack"), new byte[1000]);
+
+        cache.enforceBudget();
+        assertTrue(Files.exists(leased));
+
+        cache.release(leased);
+        assertFalse(Files.exists(leased));
+    }
+
+    private static Path useMirror(RepositoryMirrorCache cache, String repo, long lastUsedMillis) throws IOException {
+        Path mirror = cache.acquire(repo);
+        cache.release(mirror);
+        Files.setLastModifiedTime(mirror.resolve(RepositoryMirrorCache.LAST_USED_MARKER), FileTime.fromMillis(lastUsedMillis));
+        return mirror;
+    }
+}
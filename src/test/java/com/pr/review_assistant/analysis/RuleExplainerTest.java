@@ -0,0 +1,57 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleExplainerTest {
+
+    private final RuleExplainer explainer = new RuleExplainer();
+
+    @Test
+    void testFindingsOfOneRuleShareItsDescriptor() {
+        Finding first = explainer.enhanceFinding(finding("MagicNumber", "A.java"));
+        Finding second = explainer.enhanceFinding(finding("MagicNumber", "B.java"));
+
+        assertSame(first.getDescriptor(), second.getDescriptor());
+        assertEquals(Impact.HIGH, first.getImpact());
+        assertEquals("Code Quality", first.getCategory());
+        assertNotNull(first.getSuggestion());
+    }
+
+    @Test
+    void testUnknownRulesGetTheDefaultDescriptor() {
+        Finding finding = explainer.enhanceFinding(finding("SomethingCheck", "A.java"));
+
+        assertSame(RuleExplainer.DEFAULT, finding.getDescriptor());
+        assertEquals(Impact.LOW, finding.getImpact());
+    }
+
+    @Test
+    void testRepeatedStringsAreShared() {
+        Finding first = finding(new String("MagicNumber"), new String("src/A.java"));
+        Finding second = finding(new String("MagicNumber"), new String("src/A.java"));
+
+        assertSame(first.getRule(), second.getRule());
+        assertSame(first.getRelativePath(), second.getRelativePath());
+    }
+
+    @Test
+    void testSeverityLabels() {
+        assertEquals(Severity.ERROR, Severity.of("ERROR"));
+        assertEquals(Severity.WARNING, Severity.of("warning"));
+        assertEquals(Severity.INFO, Severity.of("ignore"));
+        assertEquals("warning", Severity.WARNING.label());
+    }
+
+    private static Finding finding(String rule, String path) {
+        return Finding.builder()
+                .file(path.substring(path.lastIndexOf('/') + 1))
+                .relativePath(path)
+                .line(3)
+                .severity("warning")
+                .rule(rule)
+                .message("m")
+                .build();
+    }
+}
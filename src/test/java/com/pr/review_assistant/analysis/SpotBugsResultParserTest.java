@@ -0,0 +1,82 @@
+package com.pr.review_assistant.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotBugsResultParserTest {
+
+    private static final String SAMPLE_XML = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <BugCollection version="4.8.5" sequence="0" timestamp="0" analysisTimestamp="0" release="">
+            <Project projectName="demo"><SrcDir>/tmp/repo/src/main/java</SrcDir></Project>
+            <BugInstance type="NP_NULL_ON_SOME_PATH" priority="1" rank="5" abbrev="NP" category="CORRECTNESS">
+                <ShortMessage>Possible null pointer dereference</ShortMessage>
+                <LongMessage>Possible null pointer dereference of name in com.example.Changed.greet()</LongMessage>
+                <Class classname="com.example.Changed" primary="true">
+                    <SourceLine classname="com.example.Changed" start="1" end="30" sourcefile="Changed.java" sourcepath="com/example/Changed.java"/>
+                </Class>
+                <Method classname="com.example.Changed" name="greet" signature="()V" isStatic="false" primary="true">
+                    <SourceLine classname="com.example.Changed" start="10" end="14" sourcefile="Changed.java" sourcepath="com/example/Changed.java"/>
+                </Method>
+                <SourceLine classname="com.example.Changed" start="12" end="12" sourcefile="Changed.java" sourcepath="com/example/Changed.java"/>
+            </BugInstance>
+            <BugInstance type="URF_UNREAD_FIELD" priority="2" rank="18" abbrev="UrF" category="PERFORMANCE">
+                <Class classname="com.example.Changed" primary="true">
+                    <SourceLine classname="com.example.Changed" start="1" end="30" sourcefile="Changed.java" sourcepath="com/example/Changed.java"/>
+                </Class>
+                <Field classname="com.example.Changed" name="unused" signature="I" isStatic="false" primary="true">
+                    <SourceLine classname="com.example.Changed" sourcefile="Changed.java" sourcepath="com/example/Changed.java"/>
+                </Field>
+            </BugInstance>
+            <BugInstance type="DM_DEFAULT_ENCODING" priority="3" rank="19" abbrev="Dm" category="I18N">
+                <Class classname="com.example.Untouched" primary="true">
+                    <SourceLine classname="com.example.Untouched" start="1" end="9" sourcefile="Untouched.java" sourcepath="com/example/Untouched.java"/>
+                </Class>
+                <SourceLine classname="com.example.Untouched" start="5" end="5" sourcefile="Untouched.java" sourcepath="com/example/Untouched.java"/>
+            </BugInstance>
+        </BugCollection>
+        """;
+
+    @Test
+    void testParsesBugInstancesInChangedFiles(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("spotbugsXml.xml");
+        Files.writeString(xmlFile, SAMPLE_XML);
+        ChangedFiles changedFiles = new ChangedFiles(Set.of("src/main/java/com/example/Changed.java"));
+
+        List<Finding> findings = new ArrayList<>();
+        int count = new SpotBugsResultParser().parseSpotBugsResults(xmlFile, changedFiles, findings::add);
+
+        assertEquals(2, count);
+        Finding npe = findings.get(0);
+        assertEquals("Changed.java", npe.getFile());
+        assertEquals("src/main/java/com/example/Changed.java", npe.getRelativePath());
+        assertEquals(12, npe.getLine());
+        assertEquals(Severity.ERROR, npe.getSeverity());
+        assertEquals("NP_NULL_ON_SOME_PATH", npe.getRule());
+        assertEquals("Possible null pointer dereference of name in com.example.Changed.greet()", npe.getMessage());
+
+        Finding unread = findings.get(1);
+        assertEquals(1, unread.getLine(), "Falls back to the class line when the bug has none");
+        assertEquals(Severity.WARNING, unread.getSeverity());
+        assertEquals("URF_UNREAD_FIELD", unread.getMessage());
+    }
+
+    @Test
+    void testMissingReportYieldsNoFindings(@TempDir Path tempDir) {
+        List<Finding> findings = new ArrayList<>();
+        int count = new SpotBugsResultParser().parseSpotBugsResults(
+                tempDir.resolve("missing.xml"), new ChangedFiles(Set.of()), findings::add);
+
+        assertEquals(0, count);
+        assertTrue(findings.isEmpty());
+    }
+}
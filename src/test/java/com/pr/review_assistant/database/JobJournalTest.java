@@ -0,0 +1,176 @@
+package com.pr.review_assistant.database;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private JobJournal journal(DataSize segmentSize) {
+        return new JobJournal(true, dir.toString(), segmentSize, Duration.ofMillis(10), 3, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRecoversJobsThatDidNotFinish() throws IOException {
+        JobJournal journal = journal(DataSize.ofMegabytes(1));
+        assertEquals(List.of(), journal.open());
+        ReviewJob done = new ReviewJob("o/r", "a1", 1, "base");
+        ReviewJob running = new ReviewJob("o/r", "b1", 2, "base");
+        ReviewJob waiting = new ReviewJob("o/other", "c1", 1, "base", "opened", 42);
+        journal.enqueued(done);
+        journal.enqueued(running);
+        journal.enqueued(waiting);
+        journal.started(done);
+        journal.finished(done);
+        journal.started(running);
+        journal.close();
+
+        List<ReviewJob> recovered = journal(DataSize.ofMegabytes(1)).open();
+        assertEquals(List.of(running, waiting), recovered);
+        assertEquals("opened", recovered.get(1).getAction());
+        assertEquals(42, recovered.get(1).getChangedLines());
+        assertEquals(-1, recovered.get(0).getChangedLines());
+    }
+
+    @Test
+    void testNewerPushReplacesPendingJobInPlace() throws IOException {
+        JobJournal journal = journal(DataSize.ofMegabytes(1));
+        journal.open();
+        ReviewJob first = new ReviewJob("o/r", "old", 1, "base");
+        ReviewJob second = new ReviewJob("o/r", "x", 2, "base");
+        ReviewJob newer = new ReviewJob("o/r", "new", 1, "base");
+        journal.enqueued(first);
+        journal.enqueued(second);
+        journal.started(first);
+        journal.enqueued(newer);
+        // The cancelled analysis of the old commit finishing must not drop the newer one
+        journal.finished(first);
+        journal.close();
+
+        assertEquals(List.of(newer, second), journal(DataSize.ofMegabytes(1)).open());
+    }
+
+    @Test
+    void testDropsJobsThatKeepFailingToFinish() throws IOException {
+        ReviewJob poison = new ReviewJob("o/r", "a1", 1, "base");
+        for (int attempt = 0; attempt < 3; attempt++) {
+            JobJournal journal = journal(DataSize.ofMegabytes(1));
+            List<ReviewJob> recovered = journal.open();
+            if (attempt == 0) {
+                journal.enqueued(poison);
+            } else {
+                assertEquals(List.of(poison), recovered);
+            }
+            journal.started(poison);
+            journal.close();
+        }
+
+        assertEquals(List.of(), journal(DataSize.ofMegabytes(1)).open());
+    }
+
+    @Test
+    void testReEnqueuingTheSameCommitKeepsItsAttempts() throws IOException {
+        ReviewJob poison = new ReviewJob("o/r", "a1", 1, "base");
+        for (int attempt = 0; attempt < 3; attempt++) {
+            JobJournal journal = journal(DataSize.ofMegabytes(1));
+            journal.open();
+            // Recovery and redelivered webhooks enqueue the same commit again
+            journal.enqueued(poison);
+            journal.started(poison);
+            journal.close();
+        }
+
+        assertEquals(List.of(), journal(DataSize.ofMegabytes(1)).open());
+
+        JobJournal journal = journal(DataSize.ofMegabytes(1));
+        journal.open();
+        journal.enqueued(poison);
+        journal.started(poison);
+        ReviewJob newer = new ReviewJob("o/r", "b1", 1, "base");
+        journal.enqueued(newer);
+        journal.close();
+        assertEquals(List.of(newer), journal(DataSize.ofMegabytes(1)).open());
+    }
+
+    @Test
+    void testIgnoresTornRecordAtTheEnd() throws IOException {
+        JobJournal journal = journal(DataSize.ofMegabytes(1));
+        journal.open();
+        ReviewJob job = new ReviewJob("o/r", "a1", 1, "base");
+        journal.enqueued(job);
+        journal.close();
+
+        Path segment = segments().get(0);
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(job), journal(DataSize.ofMegabytes(1)).open());
+    }
+
+    @Test
+    void testCompactsIntoANewSegment() throws IOException {
+        JobJournal journal = journal(DataSize.ofBytes(512));
+        journal.open();
+        for (int i = 0; i < 100; i++) {
+            ReviewJob job = new ReviewJob("o/r", "sha" + i, i, "base");
+            journal.enqueued(job);
+            journal.started(job);
+            journal.finished(job);
+        }
+        ReviewJob open = new ReviewJob("o/r", "open", 1000, "base");
+        journal.enqueued(open);
+        journal.close();
+
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        assertTrue(Files.size(segments.get(0)) <= 512 + 200);
+        assertEquals(List.of(open), journal(DataSize.ofBytes(512)).open());
+    }
+
+    @Test
+    void testAppendsLeaveCompactionToTheFlusher() throws IOException {
+        JobJournal journal = new JobJournal(true, dir.toString(), DataSize.ofBytes(512), Duration.ofHours(1), 3,
+                new SimpleMeterRegistry());
+        journal.open();
+        for (int i = 0; i < 100; i++) {
+            ReviewJob job = new ReviewJob("o/r", "sha" + i, i, "base");
+            journal.enqueued(job);
+            journal.finished(job);
+        }
+        ReviewJob open = new ReviewJob("o/r", "open", 1000, "base");
+        journal.enqueued(open);
+
+        List<Path> before = segments();
+        assertEquals(1, before.size());
+        assertTrue(Files.size(before.get(0)) > 512, "Appends should not compact inline");
+
+        journal.flush();
+        List<Path> after = segments();
+        assertEquals(1, after.size());
+        assertNotEquals(before.get(0), after.get(0));
+        ReviewJob later = new ReviewJob("o/r", "later", 1001, "base");
+        journal.enqueued(later);
+        journal.close();
+
+        assertEquals(List.of(open, later), journal(DataSize.ofMegabytes(1)).open());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(JobJournal.SEGMENT_PREFIX)).sorted().toList();
+        }
+    }
+}
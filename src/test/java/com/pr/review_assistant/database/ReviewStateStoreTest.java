@@ -0,0 +1,49 @@
+package com.pr.review_assistant.database;
+
+import com.pr.review_assistant.analysis.Finding;
+import com.pr.review_assistant.database.ReviewStateStore.ReviewState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewStateStoreTest {
+
+    @Test
+    void testGroupsFindingsByFile() {
+        ReviewStateStore store = new ReviewStateStore(10);
+        ReviewJob job = new ReviewJob("o/r", "head1", 7, "base");
+
+        store.save(job, List.of(finding("A.java", 1), finding("B.java", 2), finding("A.java", 3), finding(null, 4)));
+
+        ReviewState state = store.find(new ReviewJob("o/r", "head2", 7, "base"));
+        assertEquals("head1", state.headSha());
+        assertEquals("base", state.baseSha());
+        assertEquals(2, state.findingsFor("A.java").size());
+        assertEquals(1, state.findingsFor("B.java").size());
+        assertTrue(state.findingsFor("C.java").isEmpty());
+        assertNull(store.find(new ReviewJob("o/r", "head1", 8, "base")));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyReviewedPullRequest() {
+        ReviewStateStore store = new ReviewStateStore(2);
+        ReviewJob first = new ReviewJob("o/r", "a", 1, "base");
+        ReviewJob second = new ReviewJob("o/r", "b", 2, "base");
+        ReviewJob third = new ReviewJob("o/r", "c", 3, "base");
+
+        store.save(first, List.of());
+        store.save(second, List.of());
+        store.find(first);
+        store.save(third, List.of());
+
+        assertNotNull(store.find(first));
+        assertNull(store.find(second));
+        assertNotNull(store.find(third));
+    }
+
+    private static Finding finding(String path, int line) {
+        return Finding.builder().relativePath(path).line(line).severity("warning").rule("R").message("m").build();
+    }
+}
@@ -0,0 +1,321 @@
+package com.pr.review_assistant.jobs;
+
+import com.pr.review_assistant.analysis.AnalysisRunner;
+import com.pr.review_assistant.analysis.CancellationToken;
+import com.pr.review_assistant.database.JobJournal;
+import com.pr.review_assistant.database.ReviewJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class JobQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JobJournal journal = new JobJournal(false, "job-journal", DataSize.ofMegabytes(1),
+            Duration.ofMillis(10), 3, meterRegistry);
+    private JobQueue jobQueue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (jobQueue != null) {
+            jobQueue.stop();
+        }
+    }
+
+    @Test
+    void testJobsRunConcurrentlyUpToMaxConcurrency() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(runner).run(any(), any());
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 2, 2, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "abc123", 1, "def456"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "abc124", 2, "def456"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "abc125", 3, "def456"));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS), "Both workers should pick up a job without waiting for a poll");
+        assertEquals(2, jobQueue.getInFlightCount());
+        assertEquals(1, jobQueue.getQueueDepth());
+        assertEquals(1.0, meterRegistry.get("review.queue.depth").gauge().value());
+        assertEquals(2.0, meterRegistry.get("review.queue.in_flight").gauge().value());
+
+        release.countDown();
+    }
+
+    @Test
+    void testWorkerSurvivesFailingJob() throws InterruptedException {
+        CountDownLatch secondRan = new CountDownLatch(1);
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            ReviewJob job = invocation.getArgument(0);
+            if (job.getPrNumber() == 1) {
+                throw new IllegalStateException("boom");
+            }
+            secondRan.countDown();
+            return null;
+        }).when(runner).run(any(), any());
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 1, 1, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "abc123", 1, "def456"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "abc124", 2, "def456"));
+
+        assertTrue(secondRan.await(5, TimeUnit.SECONDS));
+        assertEquals(2, meterRegistry.get("review.queue.wait").timer().count());
+    }
+
+    @Test
+    void testPendingJobIsReplacedByNewerPushToSamePullRequest() throws InterruptedException {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> analyzedHeads = new CopyOnWriteArrayList<>();
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            ReviewJob job = invocation.getArgument(0);
+            analyzedHeads.add(job.getHeadSha());
+            if (job.getPrNumber() == 1) {
+                blockerStarted.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            done.countDown();
+            return null;
+        }).when(runner).run(any(), any());
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 1, 1, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "blocker", 1, "def456"));
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+        jobQueue.enqueue(new ReviewJob("test/repo", "push1", 2, "def456"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "push2", 2, "def456"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "push3", 2, "def456"));
+        assertEquals(1, jobQueue.getQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("blocker", "push3"), analyzedHeads);
+        assertEquals(2.0, meterRegistry.get("review.queue.coalesced").counter().count());
+    }
+
+    @Test
+    void testRunningJobIsCancelledByNewerPushToSamePullRequest() throws InterruptedException {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch firstCancelled = new CountDownLatch(1);
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            ReviewJob job = invocation.getArgument(0);
+            CancellationToken cancellation = invocation.getArgument(1);
+            if ("push1".equals(job.getHeadSha())) {
+                firstStarted.countDown();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (!cancellation.isCancelled() && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                if (cancellation.isCancelled()) {
+                    firstCancelled.countDown();
+                }
+            }
+            return null;
+        }).when(runner).run(any(), any());
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 2, 2, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "push1", 7, "def456"));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        jobQueue.enqueue(new ReviewJob("test/repo", "push2", 7, "def456"));
+
+        assertTrue(firstCancelled.await(5, TimeUnit.SECONDS), "Superseded analysis should be cancelled");
+        assertEquals(1.0, meterRegistry.get("review.jobs.cancelled").counter().count());
+    }
+
+    @Test
+    void testJobForRunningHeadIsDropped() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ran = new CopyOnWriteArrayList<>();
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            ReviewJob job = invocation.getArgument(0);
+            ran.add(job.getHeadSha());
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(runner).run(any(), any());
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 2, 2, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "push1", 7, "def456"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        jobQueue.enqueue(new ReviewJob("test/repo", "push1", 7, "def456"));
+
+        assertEquals(0, jobQueue.getQueueDepth());
+        assertEquals(1.0, meterRegistry.get("review.queue.coalesced").counter().count());
+        assertEquals(0.0, meterRegistry.get("review.jobs.cancelled").counter().count());
+        release.countDown();
+        jobQueue.stop();
+        jobQueue = null;
+        assertEquals(List.of("push1"), ran);
+    }
+
+    @Test
+    void testRecoversUnfinishedJobsAfterRestart(@TempDir Path journalDir) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AnalysisRunner stuck = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }).when(stuck).run(any(), any());
+
+        jobQueue = new JobQueue(stuck, durableJournal(journalDir), meterRegistry, 1, 1, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "running", 1, "base"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "waiting", 2, "base"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        jobQueue.stop();
+
+        List<String> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch both = new CountDownLatch(2);
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            ran.add(invocation.<ReviewJob>getArgument(0).getHeadSha());
+            both.countDown();
+            return null;
+        }).when(runner).run(any(), any());
+
+        jobQueue = new JobQueue(runner, durableJournal(journalDir), meterRegistry, 1, 1, 200, "");
+        jobQueue.start();
+        assertTrue(both.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("running", "waiting"), ran);
+    }
+
+    @Test
+    void testBusyRepositoryDoesNotStarveOthers() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(8);
+        AnalysisRunner runner = recordingRunner(order, blockerStarted, release, done);
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 1, 1, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("team/monorepo", "blocker", 1, "base"));
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+        for (int pr = 2; pr <= 6; pr++) {
+            jobQueue.enqueue(new ReviewJob("team/monorepo", "mono" + pr, pr, "base"));
+        }
+        jobQueue.enqueue(new ReviewJob("team/service", "svc1", 1, "base"));
+        jobQueue.enqueue(new ReviewJob("team/service", "svc2", 2, "base"));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("blocker", "svc1", "mono2", "svc2", "mono3", "mono4", "mono5", "mono6"), order);
+        assertEquals(2, meterRegistry.get("review.queue.wait").tag("repo", "team/service").timer().count());
+    }
+
+    @Test
+    void testOpenedAndSmallDiffsRunBeforeLargeSynchronize() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        AnalysisRunner runner = recordingRunner(order, blockerStarted, release, done);
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 1, 1, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("test/repo", "blocker", 1, "base"));
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+        jobQueue.enqueue(new ReviewJob("test/repo", "large", 2, "base", "synchronize", 5000));
+        jobQueue.enqueue(new ReviewJob("test/repo", "unknown", 3, "base"));
+        jobQueue.enqueue(new ReviewJob("test/repo", "small", 4, "base", "synchronize", 40));
+        jobQueue.enqueue(new ReviewJob("test/repo", "opened", 5, "base", "opened", 5000));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("blocker", "opened", "small", "large", "unknown"), order);
+    }
+
+    @Test
+    void testPerRepositoryConcurrencyCap() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        AnalysisRunner runner = recordingRunner(order, firstStarted, release, done);
+
+        jobQueue = new JobQueue(runner, journal, meterRegistry, 2, 1, 200, "");
+        jobQueue.start();
+        jobQueue.enqueue(new ReviewJob("a/repo", "blocker", 1, "base"));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        jobQueue.enqueue(new ReviewJob("a/repo", "a2", 2, "base"));
+        jobQueue.enqueue(new ReviewJob("b/repo", "b1", 1, "base"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (order.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("blocker", "b1"), order, "The second worker must skip the capped repository");
+        assertEquals(1, jobQueue.getQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("a2", order.get(2));
+    }
+
+    @Test
+    void testParseWeights() {
+        assertEquals(Map.of("a/repo", 3.0, "b/repo", 0.5), JobQueue.parseWeights("a/repo:3, b/repo:0.5"));
+        assertTrue(JobQueue.parseWeights("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> JobQueue.parseWeights("a/repo"));
+        assertThrows(IllegalArgumentException.class, () -> JobQueue.parseWeights("a/repo:0"));
+    }
+
+    /** Records the head of every job; the job with head "blocker" waits for {@code release}. */
+    private static AnalysisRunner recordingRunner(List<String> order, CountDownLatch blockerStarted,
+                                                  CountDownLatch release, CountDownLatch done) {
+        AnalysisRunner runner = mock(AnalysisRunner.class);
+        doAnswer(invocation -> {
+            ReviewJob job = invocation.getArgument(0);
+            order.add(job.getHeadSha());
+            if ("blocker".equals(job.getHeadSha())) {
+                blockerStarted.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            done.countDown();
+            return null;
+        }).when(runner).run(any(), any());
+        return runner;
+    }
+
+    private JobJournal durableJournal(Path dir) {
+        return new JobJournal(true, dir.toString(), DataSize.ofMegabytes(1), Duration.ofMillis(10), 3, meterRegistry);
+    }
+}
@@ -0,0 +1,103 @@
+package com.pr.review_assistant.jobs;
+
+import com.pr.review_assistant.analysis.AnalysisRunner;
+import com.pr.review_assistant.database.JobJournal;
+import com.pr.review_assistant.database.ReviewJob;
+import com.pr.review_assistant.publisher.Publisher;
+import com.pr.review_assistant.service.GithubWebhookService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "jobs.dispatch.mode=kafka",
+        "jobs.kafka.partitions=2",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}"
+})
+@EmbeddedKafka(partitions = 2, topics = "review-jobs")
+@ActiveProfiles("test")
+class KafkaJobDispatchTest {
+
+    @Autowired
+    private GithubWebhookService webhookService;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @MockitoBean
+    private AnalysisRunner analysisRunner;
+
+    @MockitoBean
+    private Publisher publisher;
+
+    @Test
+    void testWebhookJobIsConsumedFromKafka() throws InterruptedException {
+        List<ReviewJob> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch consumed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            ran.add(invocation.getArgument(0));
+            consumed.countDown();
+            return null;
+        }).when(analysisRunner).run(any(), any());
+
+        String payload = """
+            {
+              "action": "opened",
+              "number": 42,
+              "repository": {"full_name": "owner/repo"},
+              "pull_request": {"head": {"sha": "head123"}, "base": {"sha": "base456"}}
+            }
+            """;
+        assertEquals(202, webhookService.processWebhook("pull_request", payload).getStatusCode().value());
+
+        assertTrue(consumed.await(30, TimeUnit.SECONDS), "The worker should consume the published job");
+        assertEquals(new ReviewJob("owner/repo", "head123", 42, "base456"), ran.get(0));
+        assertTrue(context.getBeansOfType(JobQueue.class).isEmpty(), "No local queue in kafka mode");
+        assertTrue(context.getBeansOfType(JobJournal.class).isEmpty(), "No journal in kafka mode");
+    }
+
+    @Test
+    void testOlderPushOfAPullRequestIsSkipped() throws InterruptedException {
+        List<ReviewJob> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch consumed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            ran.add(invocation.getArgument(0));
+            consumed.countDown();
+            return null;
+        }).when(analysisRunner).run(any(), any());
+        // By the time the worker asks, GitHub already reports the second push as the head
+        when(publisher.currentHeadSha(any())).thenReturn("second");
+
+        String payload = """
+            {
+              "action": "synchronize",
+              "number": 43,
+              "repository": {"full_name": "owner/repo"},
+              "pull_request": {"head": {"sha": "%s"}, "base": {"sha": "base456"}}
+            }
+            """;
+        assertEquals(202, webhookService.processWebhook("pull_request", payload.formatted("first")).getStatusCode().value());
+        assertEquals(202, webhookService.processWebhook("pull_request", payload.formatted("second")).getStatusCode().value());
+
+        // Both pushes share a partition, so the first was consumed before the second ran
+        assertTrue(consumed.await(30, TimeUnit.SECONDS), "The worker should analyze the latest push");
+        assertEquals(List.of(new ReviewJob("owner/repo", "second", 43, "base456")), ran);
+        verify(analysisRunner, times(1)).run(any(), any());
+    }
+}
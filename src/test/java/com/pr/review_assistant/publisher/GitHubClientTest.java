@@ -0,0 +1,153 @@
+package com.pr.review_assistant.publisher;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubClientTest {
+
+    private final Queue<StubResponse> responses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requests.incrementAndGet();
+            StubResponse stub = responses.poll();
+            if (stub == null) {
+                stub = new StubResponse(200, Map.of());
+            }
+            stub.headers().forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(stub.status(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/repos/o/r/issues/1/comments";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private GitHubClient client(int maxAttempts, double capacity, double perSecond) {
+        return new GitHubClient(Duration.ofSeconds(2), Duration.ofSeconds(5), maxAttempts,
+                Duration.ofMillis(10), Duration.ofMillis(50), capacity, perSecond, meterRegistry);
+    }
+
+    @Test
+    void testRetriesSecondaryRateLimitAfterRetryAfter() {
+        responses.add(new StubResponse(403, Map.of("Retry-After", "0")));
+        responses.add(new StubResponse(429, Map.of()));
+        responses.add(new StubResponse(201, Map.of()));
+
+        ResponseEntity<String> response = client(4, 10, 10).post("token", url, Map.of("body", "hi"));
+
+        assertEquals(201, response.getStatusCode().value());
+        assertEquals(3, requests.get());
+        assertEquals(1.0, meterRegistry.get("review.github.retries").tag("status", "403").counter().count());
+        assertEquals(1.0, meterRegistry.get("review.github.retries").tag("status", "429").counter().count());
+        assertEquals(1, meterRegistry.get("review.github.requests").tags("method", "POST", "status", "201").timer().count());
+        assertEquals(3, meterRegistry.get("review.github.requests").timers().size());
+    }
+
+    @Test
+    void testDoesNotRetryPermissionErrors() {
+        responses.add(new StubResponse(403, Map.of()));
+
+        GitHubClient client = client(4, 10, 10);
+        assertThrows(HttpClientErrorException.Forbidden.class, () -> client.post("token", url, Map.of()));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        for (int i = 0; i < 5; i++) {
+            responses.add(new StubResponse(502, Map.of()));
+        }
+
+        GitHubClient client = client(3, 10, 10);
+        assertThrows(HttpServerErrorException.class, () -> client.get("token", url));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void testDoesNotRetryPostAfterServerError() {
+        responses.add(new StubResponse(502, Map.of()));
+
+        GitHubClient client = client(3, 10, 10);
+        assertThrows(HttpServerErrorException.class, () -> client.post("token", url, Map.of()));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testDoesNotWaitForRetryAfterBeyondMaxBackoff() {
+        responses.add(new StubResponse(429, Map.of("Retry-After", "3600")));
+
+        GitHubClient client = client(3, 10, 10);
+        long start = System.nanoTime();
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> client.get("token", url));
+        assertEquals(1, requests.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void testWaitsForRateLimitResetWhenQuotaIsExhausted() {
+        long reset = System.currentTimeMillis() / 1000 + 1;
+        responses.add(new StubResponse(200, Map.of("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", Long.toString(reset))));
+        GitHubClient client = client(1, 10, 10);
+
+        client.get("token", url);
+        long start = System.nanoTime();
+        client.get("token", url);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1, meterRegistry.get("review.github.throttle").tag("reason", "rate_limit").timer().count());
+    }
+
+    @Test
+    void testTokenBucketHandsOutReservations() {
+        GitHubClient.TokenBucket bucket = new GitHubClient.TokenBucket(2, 10);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        long wait = bucket.reserve();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(50) && wait <= TimeUnit.MILLISECONDS.toNanos(100), "wait " + wait);
+        assertTrue(bucket.reserve() > wait);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-RateLimit-Remaining", "0");
+        headers.add("X-RateLimit-Reset", Long.toString(System.currentTimeMillis() / 1000 + 5));
+        bucket.update(headers);
+        assertTrue(bucket.reserve() > TimeUnit.SECONDS.toNanos(3));
+    }
+
+    private record StubResponse(int status, Map<String, String> headers) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.pr.review_assistant.publisher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pr.review_assistant.analysis.Finding;
+import com.pr.review_assistant.database.ReviewJob;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublisherReviewTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<JsonNode> reviews = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private Publisher publisher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            requests.add(exchange.getRequestMethod() + " " + path);
+            if (path.endsWith("/reviews")) {
+                reviews.add(mapper.readTree(body));
+            }
+            int status = statuses.getOrDefault(path, 201);
+            byte[] response = ("GET".equals(exchange.getRequestMethod()) ? "[]" : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        GitHubClient client = new GitHubClient(Duration.ofSeconds(2), Duration.ofSeconds(5), 1,
+                Duration.ZERO, Duration.ZERO, 100, 100, new SimpleMeterRegistry());
+        publisher = new Publisher(client, 100);
+        ReflectionTestUtils.setField(publisher, "githubToken", "token");
+        ReflectionTestUtils.setField(publisher, "githubApiUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(publisher, "maxInlineComments", 200);
+        ReflectionTestUtils.setField(publisher, "maxCommentsPerReview", 50);
+        ReflectionTestUtils.setField(publisher, "maxReviewPayloadBytes", 524288L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testPostsInlineCommentsAsOneReview() {
+        publisher.postResult(job(), "summary", findings(30));
+
+        assertEquals(List.of("GET /repos/o/r/issues/7/comments", "POST /repos/o/r/issues/7/comments",
+                "POST /repos/o/r/pulls/7/reviews"), requests);
+        JsonNode review = reviews.get(0);
+        assertEquals("abc123", review.get("commit_id").asText());
+        assertEquals("COMMENT", review.get("event").asText());
+        assertEquals(30, review.get("comments").size());
+        JsonNode comment = review.get("comments").get(0);
+        assertEquals("src/main/java/F0.java", comment.get("path").asText());
+        assertEquals(1, comment.get("line").asInt());
+        assertEquals("RIGHT", comment.get("side").asText());
+        assertTrue(comment.get("body").asText().startsWith("WARNING: SomeRule"));
+    }
+
+    @Test
+    void testSplitsLargeReviews() {
+        publisher.postResult(job(), "summary", findings(120));
+
+        assertEquals(3, reviews.size());
+        assertEquals(50, reviews.get(0).get("comments").size());
+        assertEquals(50, reviews.get(1).get("comments").size());
+        assertEquals(20, reviews.get(2).get("comments").size());
+        assertTrue(reviews.get(2).get("body").asText().contains("part 3 of 3"));
+
+        ReflectionTestUtils.setField(publisher, "maxReviewPayloadBytes", 1000L);
+        reviews.clear();
+        publisher.postResult(job(), "summary", findings(10));
+        assertTrue(reviews.size() > 1);
+        assertEquals(10, reviews.stream().mapToInt(r -> r.get("comments").size()).sum());
+    }
+
+    @Test
+    void testFallsBackToSingleCommentsWhenReviewIsRejected() {
+        statuses.put("/repos/o/r/pulls/7/reviews", 422);
+
+        publisher.postResult(job(), "summary", findings(3));
+
+        assertEquals(3, Collections.frequency(requests, "POST /repos/o/r/pulls/7/comments"));
+    }
+
+    @Test
+    void testSkipsFindingsWithoutLocation() {
+        List<Finding> findings = new ArrayList<>(findings(2));
+        findings.add(Finding.builder().severity("error").rule("R").message("m").line(0).relativePath("A.java").build());
+
+        publisher.postResult(job(), "summary", findings);
+
+        assertEquals(2, reviews.get(0).get("comments").size());
+    }
+
+    private static ReviewJob job() {
+        return new ReviewJob("o/r", "abc123", 7, "base");
+    }
+
+    private static List<Finding> findings(int count) {
+        List<Finding> findings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            findings.add(Finding.builder()
+                    .relativePath("src/main/java/F" + i + ".java")
+                    .line(i + 1)
+                    .severity("warning")
+                    .rule("SomeRule")
+                    .message("Message " + i)
+                    .build());
+        }
+        return findings;
+    }
+}
@@ -0,0 +1,184 @@
+package com.pr.review_assistant.publisher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pr.review_assistant.analysis.Finding;
+import com.pr.review_assistant.database.ReviewJob;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublisherSummaryTest {
+
+    private static final String BOT = "review-bot";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    /** Issue comments on the stub PR, by ID. */
+    private final Map<Long, String> comments = new ConcurrentHashMap<>();
+    /** Authors of comments not written by the assistant. */
+    private final Map<Long, String> authors = new ConcurrentHashMap<>();
+    /** Comments GitHub refuses to edit. */
+    private final Set<Long> locked = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            byte[] request = exchange.getRequestBody().readAllBytes();
+            requests.add(method + " " + path);
+            int status = 200;
+            String response = "{}";
+            if ("GET".equals(method) && path.equals("/user")) {
+                response = "{\"login\":\"" + BOT + "\"}";
+            } else if ("GET".equals(method)) {
+                response = mapper.writeValueAsString(comments.entrySet().stream()
+                        .map(e -> Map.of("id", e.getKey(), "body", e.getValue(),
+                                "user", Map.of("login", authors.getOrDefault(e.getKey(), BOT))))
+                        .toList());
+            } else if (path.equals("/repos/o/r/issues/7/comments")) {
+                long id = 1000 + comments.size();
+                comments.put(id, mapper.readTree(request).get("body").asText());
+                status = 201;
+                response = "{\"id\":" + id + "}";
+            } else if (path.startsWith("/repos/o/r/issues/comments/")) {
+                long id = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+                if (locked.contains(id)) {
+                    status = 403;
+                } else if (comments.containsKey(id)) {
+                    comments.put(id, mapper.readTree(request).get("body").asText());
+                } else {
+                    status = 404;
+                }
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private Publisher publisher() {
+        GitHubClient client = new GitHubClient(Duration.ofSeconds(2), Duration.ofSeconds(5), 1,
+                Duration.ZERO, Duration.ZERO, 100, 100, new SimpleMeterRegistry());
+        Publisher publisher = new Publisher(client, 100);
+        ReflectionTestUtils.setField(publisher, "githubToken", "token");
+        ReflectionTestUtils.setField(publisher, "githubApiUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(publisher, "maxInlineComments", 50);
+        ReflectionTestUtils.setField(publisher, "maxCommentsPerReview", 50);
+        ReflectionTestUtils.setField(publisher, "maxReviewPayloadBytes", 524288L);
+        return publisher;
+    }
+
+    @Test
+    void testEditsSummaryInPlaceOnLaterPushes() {
+        Publisher publisher = publisher();
+
+        publisher.postResult(job(), summary("2 issues", "10:00"));
+        publisher.postResult(job(), summary("1 issue", "10:05"));
+
+        assertEquals(1, comments.size());
+        assertTrue(comments.get(1000L).startsWith(Publisher.SUMMARY_MARKER));
+        assertTrue(comments.get(1000L).contains("1 issue"));
+        assertEquals(1, Collections.frequency(requests, "PATCH /repos/o/r/issues/comments/1000"));
+    }
+
+    @Test
+    void testSkipsWriteWhenOnlyFooterChanged() {
+        Publisher publisher = publisher();
+
+        publisher.postResult(job(), summary("2 issues", "10:00"));
+        requests.clear();
+        publisher.postResult(job(), summary("2 issues", "10:05"));
+
+        assertEquals(List.of(), requests);
+        assertTrue(comments.get(1000L).contains("10:00"));
+    }
+
+    @Test
+    void testFindsSummaryByMarkerAfterRestart() {
+        publisher().postResult(job(), summary("2 issues", "10:00"));
+        comments.put(999L, "An unrelated comment");
+        requests.clear();
+
+        Publisher restarted = publisher();
+        restarted.postResult(job(), summary("2 issues", "10:05"));
+        assertEquals(List.of("GET /repos/o/r/issues/7/comments", "GET /user"), requests);
+
+        restarted.postResult(job(), summary("3 issues", "10:10"));
+        assertEquals(2, comments.size());
+        assertTrue(comments.get(1000L).contains("3 issues"));
+    }
+
+    @Test
+    void testPostsNewSummaryWhenOldOneWasDeleted() {
+        Publisher publisher = publisher();
+        publisher.postResult(job(), summary("2 issues", "10:00"));
+        comments.clear();
+
+        publisher.postResult(job(), summary("1 issue", "10:05"));
+
+        assertEquals(1, comments.size());
+        assertTrue(comments.values().iterator().next().contains("1 issue"));
+    }
+
+    @Test
+    void testIgnoresMarkerInOtherUsersComments() {
+        comments.put(500L, Publisher.SUMMARY_MARKER + "\nQuoting the bot");
+        authors.put(500L, "someone");
+
+        publisher().postResult(job(), summary("2 issues", "10:00"));
+
+        assertEquals(Publisher.SUMMARY_MARKER + "\nQuoting the bot", comments.get(500L));
+        assertEquals(2, comments.size());
+        assertFalse(requests.contains("PATCH /repos/o/r/issues/comments/500"));
+    }
+
+    @Test
+    void testPostsNewSummaryAndInlineCommentsWhenEditIsRejected() {
+        Publisher publisher = publisher();
+        publisher.postResult(job(), summary("2 issues", "10:00"));
+        locked.add(1000L);
+
+        List<Finding> findings = List.of(Finding.builder().relativePath("A.java").line(3)
+                .severity("warning").rule("R").message("m").build());
+        publisher.postResult(job(), summary("1 issue", "10:05"), findings);
+
+        assertEquals(2, comments.size());
+        assertTrue(comments.get(1001L).contains("1 issue"));
+        assertTrue(requests.contains("POST /repos/o/r/pulls/7/reviews"));
+    }
+
+    private static ReviewJob job() {
+        return new ReviewJob("o/r", "abc123", 7, "base");
+    }
+
+    private static String summary(String content, String time) {
+        return "Code Review Results\n\nFound " + content + "\n\n---\n*Generated by PR Review Assistant | Analysis completed at: " + time + "*";
+    }
+}
@@ -0,0 +1,57 @@
+package com.pr.review_assistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryDeduplicatorTest {
+
+    @Test
+    void testIdsExpireAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(10, Duration.ofMinutes(10), clock(now));
+
+        assertTrue(deduplicator.markIfNew("a"));
+        now.set(Duration.ofMinutes(9).toMillis());
+        assertFalse(deduplicator.markIfNew("a"));
+        now.set(Duration.ofMinutes(10).toMillis());
+        assertTrue(deduplicator.markIfNew("a"));
+    }
+
+    @Test
+    void testOldestIdIsEvictedWhenFull() {
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(2, Duration.ofHours(1), clock(new AtomicLong()));
+
+        assertTrue(deduplicator.markIfNew("a"));
+        assertTrue(deduplicator.markIfNew("b"));
+        assertTrue(deduplicator.markIfNew("c"));
+
+        assertFalse(deduplicator.markIfNew("c"));
+        assertTrue(deduplicator.markIfNew("a"));
+    }
+
+    private static Clock clock(AtomicLong millis) {
+        return new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis.get());
+            }
+        };
+    }
+}
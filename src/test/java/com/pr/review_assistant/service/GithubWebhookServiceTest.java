@@ -0,0 +1,147 @@
+package com.pr.review_assistant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pr.review_assistant.database.ReviewJob;
+import com.pr.review_assistant.jobs.JobDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GithubWebhookServiceTest {
+
+    private static final String OPENED = """
+        {"action": "opened", "number": 7, "repository": {"full_name": "o/r"},
+         "pull_request": {"head": {"sha": "h"}, "base": {"sha": "b"}}, "sender": {"login": "someone"}}""";
+
+    private JobDispatcher jobDispatcher;
+    private GithubWebhookService service;
+
+    @BeforeEach
+    void setUp() {
+        jobDispatcher = mock(JobDispatcher.class);
+        service = newService("");
+    }
+
+    private GithubWebhookService newService(String secret) {
+        return new GithubWebhookService(new ObjectMapper(), jobDispatcher,
+                new WebhookSignatureVerifier(secret), new DeliveryDeduplicator(100, Duration.ofHours(1)));
+    }
+
+    @Test
+    void testExtractsJobFieldsAndSkipsTheRestOfThePayload() {
+        String payload = """
+            {
+              "action": "synchronize",
+              "before": "abc",
+              "pull_request": {
+                "title": "Add things",
+                "labels": [{"name": "x", "sha": "not-this"}],
+                "head": {"ref": "feature", "repo": {"sha": "nested"}, "sha": "head123"},
+                "base": {"sha": "base456", "ref": "main"}
+              },
+              "repository": {"id": 1, "owner": {"full_name": "nested"}, "full_name": "owner/repo"},
+              "number": 42,
+              "sender": {"login": "someone"}
+            }
+            """;
+
+        var response = service.processWebhook("pull_request", null, null, stream(payload));
+
+        assertEquals(202, response.getStatusCode().value());
+        verify(jobDispatcher).dispatch(new ReviewJob("owner/repo", "head123", 42, "base456"));
+    }
+
+    @Test
+    void testIgnoredActionIsNotDispatched() {
+        String payload = """
+            {"action": "closed", "number": 42, "pull_request": {"head": {"sha": "h"}, "base": {"sha": "b"}}}
+            """;
+
+        var response = service.processWebhook("pull_request", null, null, stream(payload));
+
+        assertEquals(200, response.getStatusCode().value());
+        verify(jobDispatcher, never()).dispatch(any());
+    }
+
+    @Test
+    void testNonPullRequestEventIsIgnoredWithoutReadingTheBody() {
+        var response = service.processWebhook("push", null, null, stream("not json at all"));
+
+        assertEquals(200, response.getStatusCode().value());
+        verify(jobDispatcher, never()).dispatch(any());
+    }
+
+    @Test
+    void testIncompleteOrMalformedPayloadIsRejected() {
+        String missingBase = """
+            {"action": "opened", "number": 1, "repository": {"full_name": "o/r"}, "pull_request": {"head": {"sha": "h"}}}
+            """;
+
+        assertEquals(400, service.processWebhook("pull_request", null, null, stream(missingBase)).getStatusCode().value());
+        assertEquals(400, service.processWebhook("pull_request", null, null, stream("{\"action\": \"opened\"")).getStatusCode().value());
+        assertEquals(400, service.processWebhook("pull_request", null, null, stream("[]")).getStatusCode().value());
+        verify(jobDispatcher, never()).dispatch(any());
+    }
+
+    @Test
+    void testSignatureIsVerifiedBeforeDispatch() throws Exception {
+        GithubWebhookService signed = newService("s3cret");
+
+        assertEquals(202, signed.processWebhook("pull_request", "d1", sign("s3cret", OPENED), stream(OPENED))
+                .getStatusCode().value());
+        assertEquals(401, signed.processWebhook("pull_request", "d2", sign("other", OPENED), stream(OPENED))
+                .getStatusCode().value());
+        assertEquals(401, signed.processWebhook("pull_request", "d3", null, stream(OPENED))
+                .getStatusCode().value());
+        assertEquals(401, signed.processWebhook("pull_request", "d4", "sha256=zz", stream(OPENED))
+                .getStatusCode().value());
+        // A body that differs only after the fields the parser needs must still fail
+        assertEquals(401, signed.processWebhook("pull_request", "d5", sign("s3cret", OPENED), stream(OPENED + " "))
+                .getStatusCode().value());
+        // Unverified bodies are not parsed, so malformed ones are rejected as unsigned too
+        assertEquals(401, signed.processWebhook("pull_request", "d6", "sha256=00", stream("{\"action\": \"opened\""))
+                .getStatusCode().value());
+        assertEquals(401, signed.processWebhook("pull_request", "d7", sign("other", "[]"), stream("[]"))
+                .getStatusCode().value());
+        assertEquals(400, signed.processWebhook("pull_request", "d8", sign("s3cret", "[]"), stream("[]"))
+                .getStatusCode().value());
+        verify(jobDispatcher, times(1)).dispatch(any());
+    }
+
+    @Test
+    void testDuplicateDeliveryIsDispatchedOnce() {
+        assertEquals(202, service.processWebhook("pull_request", "d1", null, stream(OPENED)).getStatusCode().value());
+        assertEquals(200, service.processWebhook("pull_request", "d1", null, stream(OPENED)).getStatusCode().value());
+        assertEquals(202, service.processWebhook("pull_request", "d2", null, stream(OPENED)).getStatusCode().value());
+
+        verify(jobDispatcher, times(2)).dispatch(any());
+    }
+
+    @Test
+    void testFailedDispatchAllowsRedelivery() {
+        doThrow(new IllegalStateException("broker down")).doNothing().when(jobDispatcher).dispatch(any());
+
+        assertEquals(400, service.processWebhook("pull_request", "d1", null, stream(OPENED)).getStatusCode().value());
+        assertEquals(202, service.processWebhook("pull_request", "d1", null, stream(OPENED)).getStatusCode().value());
+    }
+
+    private static String sign(String secret, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ByteArrayInputStream stream(String payload) {
+        return new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}